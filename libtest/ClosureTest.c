@@ -133,3 +133,35 @@ C3_(L, S, B, long long, short, char);
 C3_(L, B, S, long long, char, short);
 
 
+
+/*
+ * Upcall benchmarks: call the closure count times, so jnr.ffi.bench.UpcallBenchmark can time a single upcall
+ */
+int benchClosureIIrI(int (*closure)(int, int), int count)
+{
+    int i, sum = 0;
+    for (i = 0; i < count; i++) {
+        sum = (*closure)(sum, i);
+    }
+
+    return sum;
+}
+
+long long benchClosureLrL(long long (*closure)(long long), int count)
+{
+    int i;
+    long long value = 0;
+    for (i = 0; i < count; i++) {
+        value = (*closure)(value);
+    }
+
+    return value;
+}
+
+void benchClosurePrV(void (*closure)(void *), void *ptr, int count)
+{
+    int i;
+    for (i = 0; i < count; i++) {
+        (*closure)(ptr);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2007-2010 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+#include <errno.h>
+#if !defined(__mips___) || defined(__PASE__)
+# include <stdint.h>
+#endif
+
+#if !defined (_STDINT_H_) && !defined(_STDINT_H) && !defined(_SYS__STDINT_H_) && !defined(_H_STDINT)
+typedef signed char int8_t;
+typedef signed short int16_t;
+typedef signed int int32_t;
+typedef signed long long int64_t;
+typedef unsigned char uint8_t;
+typedef unsigned short uint16_t;
+typedef unsigned int uint32_t;
+typedef unsigned long long uint64_t;
+#endif
+
+/*
+ * Each argument is weighted by its position, so any argument passed in the wrong
+ * register or stack slot changes the result.
+ */
+#define SUM8(T) int64_t sum8_##T(T a1, T a2, T a3, T a4, T a5, T a6, T a7, T a8) { \
+    return (int64_t) a1 + 2 * (int64_t) a2 + 3 * (int64_t) a3 + 4 * (int64_t) a4 \
+        + 5 * (int64_t) a5 + 6 * (int64_t) a6 + 7 * (int64_t) a7 + 8 * (int64_t) a8; \
+}
+
+SUM8(int8_t);
+SUM8(uint8_t);
+SUM8(int16_t);
+SUM8(uint16_t);
+SUM8(int32_t);
+SUM8(uint32_t);
+SUM8(int64_t);
+
+int64_t
+sum6_int32_t(int32_t a1, int32_t a2, int32_t a3, int32_t a4, int32_t a5, int32_t a6)
+{
+    return (int64_t) a1 + 2 * (int64_t) a2 + 3 * (int64_t) a3 + 4 * (int64_t) a4 + 5 * (int64_t) a5 + 6 * (int64_t) a6;
+}
+
+double
+sum_double_first(double d1, int8_t i1, double d2, int16_t i2, int32_t i3)
+{
+    return d1 + 2 * i1 + 3 * d2 + 4 * i2 + 5 * (double) i3;
+}
+
+int32_t
+sum12_int32_t(int32_t a1, int32_t a2, int32_t a3, int32_t a4, int32_t a5, int32_t a6,
+        int32_t a7, int32_t a8, int32_t a9, int32_t a10, int32_t a11, int32_t a12)
+{
+    return a1 + 2 * a2 + 3 * a3 + 4 * a4 + 5 * a5 + 6 * a6
+        + 7 * a7 + 8 * a8 + 9 * a9 + 10 * a10 + 11 * a11 + 12 * a12;
+}
+
+double
+sum12_double(double a1, double a2, double a3, double a4, double a5, double a6,
+        double a7, double a8, double a9, double a10, double a11, double a12)
+{
+    return a1 + 2 * a2 + 3 * a3 + 4 * a4 + 5 * a5 + 6 * a6
+        + 7 * a7 + 8 * a8 + 9 * a9 + 10 * a10 + 11 * a11 + 12 * a12;
+}
+
+float
+sum10_float(float a1, float a2, float a3, float a4, float a5,
+        float a6, float a7, float a8, float a9, float a10)
+{
+    return a1 + 2 * a2 + 3 * a3 + 4 * a4 + 5 * a5 + 6 * a6 + 7 * a7 + 8 * a8 + 9 * a9 + 10 * a10;
+}
+
+int64_t
+sum10_narrow(int32_t a1, int32_t a2, int32_t a3, int32_t a4, int32_t a5, int32_t a6,
+        int8_t a7, uint32_t a8, uint16_t a9, int16_t a10)
+{
+    return (int64_t) a1 + 2 * (int64_t) a2 + 3 * (int64_t) a3 + 4 * (int64_t) a4 + 5 * (int64_t) a5
+        + 6 * (int64_t) a6 + 7 * (int64_t) a7 + 8 * (int64_t) a8 + 9 * (int64_t) a9 + 10 * (int64_t) a10;
+}
+
+double
+sum_mixed(int32_t i1, double d1, int64_t i2, double d2, int8_t i3, double d3, int32_t i4, double d4,
+        int16_t i5, double d5, int32_t i6, double d6, int64_t i7, double d7, int32_t i8, double d8,
+        double d9, uint8_t i9, double d10)
+{
+    return i1 + 2 * i2 + 3 * i3 + 4 * i4 + 5 * i5 + 6 * i6 + 7 * i7 + 8 * i8 + 9 * i9
+        + 10 * d1 + 20 * d2 + 30 * d3 + 40 * d4 + 50 * d5 + 60 * d6 + 70 * d7 + 80 * d8 + 90 * d9 + 100 * d10;
+}
+
+int32_t
+sum12_int32_t_errno(int32_t a1, int32_t a2, int32_t a3, int32_t a4, int32_t a5, int32_t a6,
+        int32_t a7, int32_t a8, int32_t a9, int32_t a10, int32_t a11, int32_t a12)
+{
+    int32_t sum = sum12_int32_t(a1, a2, a3, a4, a5, a6, a7, a8, a9, a10, a11, a12);
+    errno = sum;
+    return sum;
+}
+
+double
+scale_double_errno(double d, int32_t factor)
+{
+    errno = factor;
+    return d * factor;
+}
@@ -44,3 +44,9 @@ string_duplicate(const char* s1)
 {
     return strdup(s1);
 }
+
+const char*
+string_identity(const char* s1)
+{
+    return s1;
+}
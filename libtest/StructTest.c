@@ -237,3 +237,36 @@ STRUCT_ALIGNMENT(8)
 #pragma pack(push, 16)
 STRUCT_ALIGNMENT(16)
 #pragma pack(pop)
+
+struct point {
+    int x;
+    int y;
+};
+
+void
+struct_fill_points(struct point* points, int count)
+{
+    int i;
+    for (i = 0; i < count; i++) {
+        points[i].x = i;
+        points[i].y = -i;
+    }
+}
+
+long long
+struct_sum_points(struct point* points, int count)
+{
+    long long sum = 0;
+    int i;
+    for (i = 0; i < count; i++) {
+        sum += points[i].x * 2 + points[i].y;
+    }
+
+    return sum;
+}
+
+struct point*
+struct_point_offset(struct point* points, int index)
+{
+    return &points[index];
+}
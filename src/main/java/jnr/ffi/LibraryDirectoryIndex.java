@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2008-2010 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A process wide index of the shared libraries in each library directory, keyed by base library name
+ * (e.g. {@code c} for {@code libc.so.6}).
+ *
+ * Each directory is listed once, the first time it is searched, and the index is shared by every library
+ * load after that.  Libraries installed after a directory has been indexed are not seen until the index
+ * is discarded with {@link Platform#invalidateLibraryIndex()}, or a caller that already knows the
+ * directory's current modification time passes it in.
+ */
+final class LibraryDirectoryIndex {
+    private static final Pattern LIBRARY_FILE = Pattern.compile("lib(.+)\\.so(?:\\.[0-9]+)*");
+    private static final String[] NO_FILES = new String[0];
+
+    private static final LibraryDirectoryIndex INSTANCE = new LibraryDirectoryIndex();
+
+    private final ConcurrentMap<String, Directory> directories = new ConcurrentHashMap<>();
+
+    static LibraryDirectoryIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the versioned and unversioned files for a library in a directory.
+     *
+     * @param directory the directory to search.
+     * @param libName the base library name, without the {@code lib} prefix or {@code .so} suffix.
+     * @return the file names, which must not be modified; empty if there are none.
+     */
+    String[] find(String directory, String libName) {
+        Directory index = directories.get(directory);
+        if (index == null) {
+            Directory existing = directories.putIfAbsent(directory, index = scan(directory));
+            if (existing != null) {
+                index = existing;
+            }
+        }
+
+        return index.find(libName);
+    }
+
+    /**
+     * Finds the files for a library in a directory, re-indexing the directory if it has changed.
+     *
+     * @param directory the directory to search.
+     * @param libName the base library name, without the {@code lib} prefix or {@code .so} suffix.
+     * @param lastModified the current modification time of the directory.
+     * @return the file names, which must not be modified; empty if there are none.
+     */
+    String[] find(String directory, String libName, long lastModified) {
+        Directory index = directories.get(directory);
+        if (index == null || index.lastModified != lastModified) {
+            directories.put(directory, index = scan(directory));
+        }
+
+        return index.find(libName);
+    }
+
+    /**
+     * Discards all the indexed directories, so they are listed again on the next search.
+     */
+    void invalidate() {
+        directories.clear();
+    }
+
+    private static Directory scan(String directory) {
+        File dir = new File(directory);
+        // Read the modification time first, so a change during the listing is picked up next time
+        long lastModified = dir.lastModified();
+        String[] files = dir.list();
+        if (files == null) {
+            return new Directory(lastModified, Collections.<String, String[]>emptyMap());
+        }
+
+        Map<String, List<String>> libraries = new HashMap<>();
+        for (String file : files) {
+            Matcher matcher = LIBRARY_FILE.matcher(file);
+            if (matcher.matches()) {
+                List<String> names = libraries.get(matcher.group(1));
+                if (names == null) {
+                    libraries.put(matcher.group(1), names = new ArrayList<>(2));
+                }
+                names.add(file);
+            }
+        }
+
+        Map<String, String[]> index = new HashMap<>(libraries.size() * 2);
+        for (Map.Entry<String, List<String>> e : libraries.entrySet()) {
+            index.put(e.getKey(), e.getValue().toArray(new String[0]));
+        }
+
+        return new Directory(lastModified, index);
+    }
+
+    private static final class Directory {
+        final long lastModified;
+        final Map<String, String[]> libraries;
+
+        Directory(long lastModified, Map<String, String[]> libraries) {
+            this.lastModified = lastModified;
+            this.libraries = libraries;
+        }
+
+        String[] find(String libName) {
+            String[] files = libraries.get(libName);
+            return files != null ? files : NO_FILES;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2008-2010 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the library files found by scanning the library search path, so loading a library does not
+ * have to list every directory on the path again.
+ *
+ * Entries are keyed by library name and search path list, and are only used while the modification
+ * times of all the directories on the path are unchanged.  The cache is disabled by default; it is
+ * enabled in memory by setting the {@code jnr.ffi.library.cache} system property to {@code true}, or
+ * in memory and persisted across runs by setting {@code jnr.ffi.library.cache.dir} to a directory
+ * to store it in.
+ */
+final class LibraryResolutionCache {
+    private static final int MAGIC = 0x6a6e7201;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final File file;
+
+    private static final class SingletonHolder {
+        static final LibraryResolutionCache INSTANCE = create();
+    }
+
+    LibraryResolutionCache(File file) {
+        this.file = file;
+        if (file != null && file.isFile()) {
+            load();
+        }
+    }
+
+    /**
+     * Gets the process wide cache.
+     *
+     * @return the cache, or {@code null} if caching is disabled.
+     */
+    static LibraryResolutionCache getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    private static LibraryResolutionCache create() {
+        try {
+            String dir = System.getProperty("jnr.ffi.library.cache.dir");
+            if (dir != null) {
+                Platform platform = Platform.getNativePlatform();
+                String name = "jnr-ffi-libraries-" + platform.getOS() + "-" + platform.getCPU() + ".cache";
+                return new LibraryResolutionCache(new File(dir, name.toLowerCase(java.util.Locale.ENGLISH)));
+            }
+            return Boolean.getBoolean("jnr.ffi.library.cache") ? new LibraryResolutionCache(null) : null;
+
+        } catch (SecurityException se) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the modification times of the directories on a search path; missing directories are recorded as 0.
+     *
+     * @param libraryPaths the search path.
+     * @return the modification time of each directory, in search path order.
+     */
+    static long[] lastModified(List<String> libraryPaths) {
+        long[] mtimes = new long[libraryPaths.size()];
+        for (int i = 0; i < mtimes.length; i++) {
+            mtimes[i] = new File(libraryPaths.get(i)).lastModified();
+        }
+        return mtimes;
+    }
+
+    /**
+     * Gets the cached library file names for each directory on the search path.
+     *
+     * @param libName the library name being searched for.
+     * @param libraryPaths the search path.
+     * @param mtimes the current modification times of the search path directories.
+     * @return the file names found in each directory, or {@code null} if there is no current entry.
+     */
+    String[][] get(String libName, List<String> libraryPaths, long[] mtimes) {
+        Entry entry = entries.get(new Key(libName, libraryPaths));
+        return entry != null && Arrays.equals(entry.mtimes, mtimes) ? entry.names : null;
+    }
+
+    /**
+     * Stores the result of scanning the search path.
+     *
+     * @param libName the library name that was searched for.
+     * @param libraryPaths the search path.
+     * @param mtimes the modification times of the search path directories, taken before the scan.
+     * @param names the file names found in each directory, {@code null} for directories that were skipped.
+     */
+    void put(String libName, List<String> libraryPaths, long[] mtimes, String[][] names) {
+        entries.put(new Key(libName, libraryPaths), new Entry(mtimes, names));
+        if (file != null) {
+            save();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+
+            for (int count = in.readInt(); count > 0; count--) {
+                String libName = in.readUTF();
+                int pathCount = in.readInt();
+                List<String> libraryPaths = new ArrayList<>(pathCount);
+                long[] mtimes = new long[pathCount];
+                String[][] names = new String[pathCount][];
+                for (int i = 0; i < pathCount; i++) {
+                    libraryPaths.add(in.readUTF());
+                    mtimes[i] = in.readLong();
+                    int nameCount = in.readInt();
+                    if (nameCount >= 0) {
+                        names[i] = new String[nameCount];
+                        for (int j = 0; j < nameCount; j++) {
+                            names[i][j] = in.readUTF();
+                        }
+                    }
+                }
+                entries.put(new Key(libName, libraryPaths), new Entry(mtimes, names));
+            }
+
+        } catch (IOException | RuntimeException ex) {
+            // A missing, truncated or corrupt cache file just means the libraries get looked up again
+            entries.clear();
+        }
+    }
+
+    private synchronized void save() {
+        File tmp = null;
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+
+            // Write to a temporary file and rename it, so other processes never see a partial cache
+            tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                List<Map.Entry<Key, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+                out.writeInt(MAGIC);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<Key, Entry> e : snapshot) {
+                    Key key = e.getKey();
+                    Entry entry = e.getValue();
+                    out.writeUTF(key.libName);
+                    out.writeInt(key.libraryPaths.size());
+                    for (int i = 0; i < key.libraryPaths.size(); i++) {
+                        out.writeUTF(key.libraryPaths.get(i));
+                        out.writeLong(entry.mtimes[i]);
+                        String[] names = entry.names[i];
+                        out.writeInt(names != null ? names.length : -1);
+                        if (names != null) {
+                            for (String name : names) {
+                                out.writeUTF(name);
+                            }
+                        }
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+
+        } catch (IOException | SecurityException ex) {
+            // The cache is only an optimization; carry on without persisting it
+
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static final class Key {
+        final String libName;
+        final List<String> libraryPaths;
+
+        Key(String libName, List<String> libraryPaths) {
+            this.libName = libName;
+            this.libraryPaths = Collections.unmodifiableList(new ArrayList<>(libraryPaths));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return libName.equals(key.libName) && libraryPaths.equals(key.libraryPaths);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * libName.hashCode() + libraryPaths.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final long[] mtimes;
+        final String[][] names;
+
+        Entry(long[] mtimes, String[][] names) {
+            this.mtimes = mtimes;
+            this.names = names;
+        }
+    }
+}
@@ -65,10 +65,32 @@ package jnr.ffi;
  */
 public abstract class ObjectReferenceManager<T> {
 
+    /**
+     * The ways an {@code ObjectReferenceManager} can map objects to native addresses.
+     */
+    public enum Strategy {
+        /**
+         * Derives addresses from the identity hash codes of objects, and looks them up in a hash table.
+         * Looking up an address that has been removed returns {@code null}.
+         */
+        HASHED,
+
+        /**
+         * Issues addresses that encode an index into a table of slots, and the generation of that slot.
+         * Lookups are a single array load, and looking up an address that has been removed throws
+         * {@link IllegalArgumentException} instead of returning whichever object has since reused its slot.
+         */
+        HANDLE_TABLE
+    }
+
     public static <T> ObjectReferenceManager<T> newInstance(Runtime runtime) {
         return runtime.newObjectReferenceManager();
     }
 
+    public static <T> ObjectReferenceManager<T> newInstance(Runtime runtime, Strategy strategy) {
+        return runtime.newObjectReferenceManager(strategy);
+    }
+
     /**
      * Adds a mapping from a java object to a unique native address.
      *
@@ -551,6 +551,14 @@ public abstract class Platform {
         return locateLibrary(libName, libraryPaths);
     }
 
+    /**
+     * Discards the process wide index of library directories used by {@link #locateLibrary}, so libraries
+     * installed since the directories were first searched can be found.
+     */
+    public static void invalidateLibraryIndex() {
+        LibraryDirectoryIndex.getInstance().invalidate();
+    }
+
     /**
      * Returns a list of absolute paths to the found locations of a library with the base name {@code libName},
      * if the returned list is empty then the library could not be found and will fail to be loaded as a result.
@@ -732,6 +740,9 @@ public abstract class Platform {
             }
         }
 
+        private static final Pattern EXCLUDE_32_BIT_PATHS = Pattern.compile(".*(lib[a-z]*32|i[0-9]86).*"); // ignore 32 bit libs on 64-bit
+        private static final Pattern EXCLUDE_64_BIT_PATHS = Pattern.compile(".*(lib[a-z]*64|amd64|x86_64).*"); // ignore 64 bit libs on 32-bit
+
         public Linux() {
             super(OS.LINUX);
         }
@@ -780,38 +791,26 @@ public abstract class Platform {
                 customPaths.addAll(libraryPaths);
             }
 
-            Pattern exclude;
-            // there are /libx32 directories in wild on ubuntu 14.04 and the
-            // oracle-java8-installer package
-            if (getCPU() == CPU.X86_64) {
-                exclude = Pattern.compile(".*(lib[a-z]*32|i[0-9]86).*"); // ignore 32 bit libs on 64-bit
-            } else {
-                exclude = Pattern.compile(".*(lib[a-z]*64|amd64|x86_64).*"); // ignore 64 bit libs on 32-bit
-            }
-
-            final Pattern versionedLibPattern = Pattern.compile("lib" + libName + "\\.so((?:\\.[0-9]+)*)$");
-
-            FilenameFilter filter = new FilenameFilter() {
-                public boolean accept(File dir, String name) {
-                    return versionedLibPattern.matcher(name).matches();
+            LibraryResolutionCache cache = LibraryResolutionCache.getInstance();
+            long[] mtimes = cache != null ? LibraryResolutionCache.lastModified(libraryPaths) : null;
+            String[][] names = cache != null ? cache.get(libName, libraryPaths, mtimes) : null;
+            if (names == null) {
+                names = listLibraries(libName, libraryPaths, mtimes);
+                if (cache != null) {
+                    cache.put(libName, libraryPaths, mtimes, names);
                 }
-            };
+            }
 
             List<Match> matches = new ArrayList<>();
-            for (String path : libraryPaths) {
-                if (exclude.matcher(path).matches()) {
+            for (int p = 0; p < names.length; p++) {
+                if (names[p] == null) {
                     continue;
                 }
 
-                File libraryPath = new File(path);
-                File[] files = libraryPath.listFiles(filter);
-                if (files == null) {
-                    continue;
-                }
-
-                for (File file : files) {
-                    Matcher matcher = versionedLibPattern.matcher(file.getName());
-                    String versionString = matcher.matches() ? matcher.group(1) : "";
+                String path = libraryPaths.get(p);
+                for (String name : names[p]) {
+                    // the file name is lib<libName>.so followed by the version, if any
+                    String versionString = name.substring(libName.length() + 6);
                     int[] version;
                     if (versionString == null || versionString.isEmpty()) {
                         version = new int[0];
@@ -823,7 +822,7 @@ public abstract class Platform {
                         }
                     }
                     Match match = new Match();
-                    match.path = file.getAbsolutePath();
+                    match.path = new File(path, name).getAbsolutePath();
                     match.version = version;
                     match.isCustom = customPaths.contains(path);
                     matches.add(match);
@@ -832,6 +831,30 @@ public abstract class Platform {
             return matches;
         }
 
+        /**
+         * Lists the library files in each directory of the search path.
+         *
+         * @param mtimes the directory modification times, if known, used to refresh stale directory indexes
+         * @return the matching file names for each directory, {@code null} for directories that were skipped.
+         */
+        private String[][] listLibraries(String libName, List<String> libraryPaths, long[] mtimes) {
+            // there are /libx32 directories in wild on ubuntu 14.04 and the
+            // oracle-java8-installer package
+            Pattern exclude = getCPU() == CPU.X86_64 ? EXCLUDE_32_BIT_PATHS : EXCLUDE_64_BIT_PATHS;
+
+            LibraryDirectoryIndex index = LibraryDirectoryIndex.getInstance();
+            String[][] names = new String[libraryPaths.size()][];
+            for (int p = 0; p < names.length; p++) {
+                String path = libraryPaths.get(p);
+                if (exclude.matcher(path).matches()) {
+                    continue;
+                }
+
+                names[p] = mtimes != null ? index.find(path, libName, mtimes[p]) : index.find(path, libName);
+            }
+            return names;
+        }
+
         private static int compareVersions(int[] version1, int[] version2) {
             // Null is always smallest
             if (version1 == null) {
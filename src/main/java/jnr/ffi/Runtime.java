@@ -20,6 +20,7 @@ package jnr.ffi;
 
 import jnr.ffi.provider.ClosureManager;
 import jnr.ffi.provider.FFIProvider;
+import jnr.ffi.provider.HandleObjectReferenceManager;
 import jnr.ffi.provider.LoadedLibrary;
 import jnr.ffi.provider.MemoryManager;
 import jnr.ffi.provider.jffi.NativeLibrary;
@@ -147,6 +148,27 @@ public abstract class Runtime {
      */
     public abstract <T> ObjectReferenceManager<T> newObjectReferenceManager();
 
+    /**
+     * Creates a new {@code ObjectReferenceManager} that maps objects to native addresses using {@code strategy}
+     *
+     * @param <T> the type parameter of the {@code ObjectReferenceManager}.
+     * @param strategy how objects are mapped to native addresses.
+     * @return A new {@link ObjectReferenceManager}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ObjectReferenceManager<T> newObjectReferenceManager(ObjectReferenceManager.Strategy strategy) {
+        switch (strategy) {
+            case HASHED:
+                return newObjectReferenceManager();
+
+            case HANDLE_TABLE:
+                return new HandleObjectReferenceManager(this);
+
+            default:
+                throw new IllegalArgumentException("unsupported object reference strategy " + strategy);
+        }
+    }
+
     /**
      * Gets the last native error code.
      * <p>
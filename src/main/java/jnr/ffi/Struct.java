@@ -43,26 +43,29 @@ import java.nio.charset.Charset;
 public abstract class Struct {
     static final Charset ASCII = Charset.forName("ASCII");
     static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Alignment NATURAL_ALIGNMENT = new Alignment(0);
 
     static final class Info {
         private final Runtime runtime;
         private jnr.ffi.Pointer memory = null;
         Struct enclosing = null;
         int offset = 0; // offset within enclosing Struct
+        int position = 0; // offset of a top level Struct within its memory, e.g. an element of a StructArray
+        jnr.ffi.Pointer slice; // the memory of the Struct at position, reused while it stays there
 
         int size = 0;
         int minAlign = 1;
         boolean isUnion = false;
         boolean resetIndex = false;
 
-        Alignment alignment = new Alignment(0);
+        Alignment alignment = NATURAL_ALIGNMENT;
 
         public Info(Runtime runtime) {
             this.runtime = runtime;
         }
 
         public final int getOffset() {
-            return enclosing == null ? 0 : offset + enclosing.__info.getOffset();
+            return enclosing == null ? position : offset + enclosing.__info.getOffset();
         }
 
         public final jnr.ffi.Pointer getMemory(int flags) {
@@ -73,6 +76,18 @@ public abstract class Struct {
             return getMemory(ParameterFlags.TRANSIENT);
         }
 
+        final jnr.ffi.Pointer getStructMemory(int flags) {
+            jnr.ffi.Pointer memory = getMemory(flags);
+            if (enclosing != null || position == 0) {
+                return memory;
+            }
+
+            if (slice == null) {
+                slice = memory.slice(position, size());
+            }
+            return slice;
+        }
+
         final boolean isDirect() {
             return (enclosing != null && enclosing.__info.isDirect()) || (memory != null && memory.isDirect());
         }
@@ -94,7 +109,15 @@ public abstract class Struct {
         }
 
         public final void useMemory(jnr.ffi.Pointer io) {
+            useMemory(io, 0);
+        }
+
+        final void useMemory(jnr.ffi.Pointer io, int position) {
+            if (io != this.memory || position != this.position) {
+                this.slice = null;
+            }
             this.memory = io;
+            this.position = position;
         }
 
         protected final int addField(int sizeBits, int alignBits, Offset offset) {
@@ -158,11 +181,11 @@ public abstract class Struct {
     }
 
     public static jnr.ffi.Pointer getMemory(Struct struct) {
-        return struct.__info.getMemory(0);
+        return struct.__info.getStructMemory(0);
     }
 
     public static jnr.ffi.Pointer getMemory(Struct struct, int flags) {
-        return struct.__info.getMemory(flags);
+        return struct.__info.getStructMemory(flags);
     }
 
     /**
@@ -184,18 +207,7 @@ public abstract class Struct {
      * @return the size of the Struct in bytes
      */
     public static <T extends Struct> int size(Class<T> structClass, Runtime runtime) {
-        try {
-            Constructor<T> structConstructor = structClass.getDeclaredConstructor(Runtime.class);
-            T struct = structConstructor.newInstance(runtime);
-            return Struct.size(struct);
-        } catch (NoSuchMethodException ex) {
-            throw new RuntimeException("Could not create an instance of " + structClass.getName() +
-                    "\nBecause could not find the public constructor with a Runtime argument, it should look like:\n" +
-                    "public " + structClass.getSimpleName() + "(Runtime runtime) {super(runtime);}",
-                    ex);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
-        }
+        return ClassInfo.get(structClass).getExtent(runtime).size;
     }
 
     /**
@@ -213,6 +225,35 @@ public abstract class Struct {
         return struct.__info.getMinimumAlignment();
     }
 
+    /**
+     * Gets the alignment of a Struct type in bytes
+     *
+     * @param structClass the {@link Class} of the Struct
+     * @param runtime     the {@link Runtime} that will be used to create an instance of the Struct
+     * @param <T>         the Struct type
+     * @return the alignment of the Struct in bytes
+     */
+    public static <T extends Struct> int alignment(Class<T> structClass, Runtime runtime) {
+        return ClassInfo.get(structClass).getExtent(runtime).alignment;
+    }
+
+    /**
+     * Creates an instance of a Struct type, using its constructor that takes a {@link Runtime}.
+     *
+     * <p>
+     * The constructor is looked up once per Struct type, but it is still called reflectively, and the new instance
+     * lays out and allocates its members as usual.  To access many records of one type, reuse one instance with
+     * {@link StructArray#get(int)} or a {@link StructView} instead.
+     *
+     * @param runtime     the {@link Runtime} to create the Struct with
+     * @param structClass the {@link Class} of the Struct
+     * @param <T>         the Struct type
+     * @return a new instance of the Struct
+     */
+    public static <T extends Struct> T newInstance(Runtime runtime, Class<T> structClass) {
+        return structClass.cast(ClassInfo.get(structClass).newInstance(runtime));
+    }
+
     public static boolean isDirect(Struct struct) {
         return struct.__info.isDirect();
     }
@@ -221,13 +262,119 @@ public abstract class Struct {
         return (offset + align - 1) & ~(align - 1);
     }
 
+    /**
+     * The constructor that takes a {@link Runtime} and the size and alignment of a Struct type, shared by all of
+     * its instances.
+     *
+     * This is not a cached layout: each instance still runs its member initializers, which allocate the members
+     * and compute their offsets.  Handing a cached layout to those initializers would need a lookup in every
+     * constructor that costs as much as the few integer operations of addField, and the member allocations would
+     * remain.
+     */
+    private static final class ClassInfo<T extends Struct> {
+        private static final ClassValue<ClassInfo<?>> CLASSES = new ClassValue<ClassInfo<?>>() {
+            @Override
+            protected ClassInfo<?> computeValue(Class<?> type) {
+                return create(type.asSubclass(Struct.class));
+            }
+        };
+
+        private final Class<T> structClass;
+        private volatile Constructor<T> constructor;
+
+        // There are only ever a few runtimes, so the extents are a list searched by identity; hashing a runtime
+        // is much more expensive than comparing one
+        private volatile Extent extents;
+
+        private ClassInfo(Class<T> structClass) {
+            this.structClass = structClass;
+        }
+
+        private static <T extends Struct> ClassInfo<T> create(Class<T> structClass) {
+            return new ClassInfo<T>(structClass);
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T extends Struct> ClassInfo<T> get(Class<T> structClass) {
+            return (ClassInfo<T>) CLASSES.get(structClass);
+        }
+
+        Constructor<T> getConstructor() {
+            Constructor<T> c = constructor;
+            if (c != null) {
+                return c;
+            }
+
+            try {
+                return constructor = structClass.getDeclaredConstructor(Runtime.class);
+            } catch (NoSuchMethodException ex) {
+                throw new RuntimeException("Could not create an instance of " + structClass.getName() +
+                        "\nBecause could not find the public constructor with a Runtime argument, it should look like:\n" +
+                        "public " + structClass.getSimpleName() + "(Runtime runtime) {super(runtime);}",
+                        ex);
+            }
+        }
+
+        T newInstance(Runtime runtime) {
+            try {
+                return getConstructor().newInstance(runtime);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        Extent getExtent(Runtime runtime) {
+            for (Extent extent = extents; extent != null; extent = extent.next) {
+                if (extent.runtime == runtime) {
+                    return extent;
+                }
+            }
+
+            // Measure a throwaway instance once; every later instance created with this runtime matches it
+            T struct = newInstance(runtime);
+            synchronized (this) {
+                return extents = new Extent(runtime, Struct.size(struct), Struct.alignment(struct), extents);
+            }
+        }
+    }
+
+    /** The size and alignment of a Struct type's instances created with one runtime */
+    private static final class Extent {
+        final Runtime runtime;
+        final int size;
+        final int alignment;
+        final Extent next;
+
+        Extent(Runtime runtime, int size, int alignment, Extent next) {
+            this.runtime = runtime;
+            this.size = size;
+            this.alignment = alignment;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The constructors of Member classes, which take the enclosing Struct, used to create arrays of members.
+     */
+    private static final ClassValue<Constructor<?>> MEMBER_CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                return type.getDeclaredConstructor(type.getEnclosingClass());
+            } catch (NoSuchMethodException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    };
+
     @SuppressWarnings("unchecked")
     public static <T extends Struct> T[] arrayOf(Runtime runtime, Class<T> type, int length) {
         try {
             T[] array = (T[]) Array.newInstance(type, length);
-            Constructor<T> c = type.getConstructor(Runtime.class);
             for (int i = 0; i < length; ++i) {
-                array[i] = c.newInstance(runtime);
+                array[i] = newInstance(runtime, type);
             }
 
             if (array.length > 0) {
@@ -382,8 +529,7 @@ public abstract class Struct {
     protected <T extends Member> T[] array(T[] array) {
         arrayBegin();
         try {
-            Class<?> arrayClass = array.getClass().getComponentType();
-            Constructor<?> ctor = arrayClass.getDeclaredConstructor(new Class[] { arrayClass.getEnclosingClass() });
+            Constructor<?> ctor = MEMBER_CONSTRUCTORS.get(array.getClass().getComponentType());
             Object[] parameters = { Struct.this  };
             for (int i = 0; i < array.length; ++i) {
                 array[i] = (T) ctor.newInstance(parameters);
@@ -490,11 +636,10 @@ public abstract class Struct {
     protected <T extends Struct> T[] array(T[] array) {
         arrayBegin();
         try {
-            Class<?> type = array.getClass().getComponentType();
-            Constructor c = type.getConstructor(Runtime.class);
+            Class<? extends Struct> type = array.getClass().getComponentType().asSubclass(Struct.class);
 
             for (int i = 0; i < array.length; i++) {
-                array[i] = inner((T) c.newInstance(getRuntime()));
+                array[i] = inner((T) newInstance(getRuntime(), type));
             }
         } catch (Exception ex) {
             throw new RuntimeException(ex);
@@ -783,18 +928,7 @@ public abstract class Struct {
      * @return the newly created inner Struct of type {@link T}
      */
     protected final <T extends Struct> T inner(Class<T> structClass) {
-        try {
-            Constructor<T> structConstructor = structClass.getDeclaredConstructor(Runtime.class);
-            T struct = structConstructor.newInstance(getRuntime());
-            return inner(struct);
-        } catch (NoSuchMethodException ex) {
-            throw new RuntimeException("Could not create an instance of " + structClass.getName() +
-                    "\nBecause could not find the public constructor with a Runtime argument, it should look like:\n" +
-                    "public " + structClass.getSimpleName() + "(Runtime runtime) {super(runtime);}",
-                    ex);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
-        }
+        return inner(newInstance(getRuntime(), structClass));
     }
 
     /**
@@ -2117,12 +2251,8 @@ public abstract class Struct {
 
         public StructRef(Class<T> structType) {
             this.structType = structType;
-            try {
-                structConstructor = structType.getDeclaredConstructor(Runtime.class);
-                size = Struct.size(structConstructor.newInstance(getRuntime()));
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
-            }
+            structConstructor = ClassInfo.get(structType).getConstructor();
+            size = Struct.size(structType, getRuntime());
         }
 
         /**
@@ -2137,12 +2267,8 @@ public abstract class Struct {
         public StructRef(Offset offset, Class<T> structType) {
             super(offset);
             this.structType = structType;
-            try {
-                structConstructor = structType.getDeclaredConstructor(Runtime.class);
-                size = Struct.size(structConstructor.newInstance(getRuntime()));
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
-            }
+            structConstructor = ClassInfo.get(structType).getConstructor();
+            size = Struct.size(structType, getRuntime());
         }
 
         /**
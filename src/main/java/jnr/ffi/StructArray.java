@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * An array of structs laid out contiguously in a single block of native memory.
+ *
+ * <p>
+ * Elements are accessed through views: {@link #get(int)} moves a single {@link Struct} owned by the array over
+ * the requested element and returns it, so walking the array does not allocate anything per element.  Use
+ * {@link #newView(int)} when views of more than one element are needed at the same time.
+ * <p>
+ * A {@code StructArray} can be passed to a native function, which receives a pointer to the first element, and
+ * can be returned from one.  The length of a returned array is not known, so {@link #length()} is {@code -1}
+ * and its elements are not bounds checked.
+ * <p>
+ * A view of an element other than the first can be passed by reference too.  The native function then receives a
+ * slice of the array's memory, which the view creates the first time it is passed at that element and keeps until
+ * it is moved, so passing each element in turn allocates one slice per element.
+ *
+ * <pre>
+ *     <code>
+ *     public interface LibPoint {
+ *         void fill_points(StructArray&lt;Point&gt; points, int count);
+ *     }
+ *
+ *     StructArray&lt;Point&gt; points = new StructArray&lt;Point&gt;(runtime, Point.class, 100000);
+ *     lib.fill_points(points, points.length());
+ *     for (int i = 0; i &lt; points.length(); i++) {
+ *         Point p = points.get(i);
+ *         ...
+ *     }
+ *     </code>
+ * </pre>
+ *
+ * <b>Note:</b> Like {@link Struct}, this class is not threadsafe.
+ *
+ * @param <T> the type of the elements.
+ */
+public final class StructArray<T extends Struct> {
+    private final Class<T> structClass;
+    private final Pointer memory;
+    private final int length;
+    private final int elementSize;
+    private final T view;
+
+    /**
+     * Allocates a new, zeroed, array of structs.
+     *
+     * @param runtime the current runtime.
+     * @param structClass the type of the elements.
+     * @param length the number of elements.
+     */
+    public StructArray(Runtime runtime, Class<T> structClass, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("negative length: " + length);
+        }
+
+        this.structClass = structClass;
+        this.view = Struct.newInstance(runtime, structClass);
+        this.elementSize = align(Struct.size(structClass, runtime), Struct.alignment(structClass, runtime));
+        this.length = length;
+        this.memory = runtime.getMemoryManager().allocateDirect(Math.max(1, Math.multiplyExact(elementSize, length)), true);
+        view.__info.useMemory(memory, 0);
+    }
+
+    /**
+     * Creates an array of structs in existing memory.
+     *
+     * @param structClass the type of the elements.
+     * @param memory the memory holding the elements.
+     * @param length the number of elements, or {@code -1} if it is not known.
+     */
+    public StructArray(Class<T> structClass, Pointer memory, int length) {
+        if (length < -1) {
+            throw new IllegalArgumentException("invalid length: " + length);
+        }
+
+        this.structClass = structClass;
+        this.view = Struct.newInstance(memory.getRuntime(), structClass);
+        this.elementSize = align(Struct.size(structClass, memory.getRuntime()), Struct.alignment(structClass, memory.getRuntime()));
+        this.length = length;
+        this.memory = memory;
+        view.__info.useMemory(memory, 0);
+    }
+
+    /**
+     * Gets the number of elements in this array.
+     *
+     * @return the number of elements, or {@code -1} if it is not known.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Gets the distance in bytes between consecutive elements.
+     *
+     * @return the size of an element, including any padding needed to align the next one.
+     */
+    public int elementSize() {
+        return elementSize;
+    }
+
+    /**
+     * Gets the native memory that holds the elements.
+     *
+     * @return the memory holding the elements.
+     */
+    public Pointer getMemory() {
+        return memory;
+    }
+
+    /**
+     * Gets the view of an element.
+     *
+     * <p>
+     * The same {@code Struct} is returned on each call, moved to {@code index}, so it must not be held on to
+     * across calls.
+     *
+     * @param index the index of the element.
+     * @return the view of the element.
+     */
+    public T get(int index) {
+        view.__info.useMemory(memory, offset(index));
+        return view;
+    }
+
+    /**
+     * Creates a new view of an element, independent of the one returned by {@link #get(int)}.
+     *
+     * @param index the index of the element.
+     * @return a new view of the element.
+     */
+    public T newView(int index) {
+        T struct = Struct.newInstance(memory.getRuntime(), structClass);
+        struct.__info.useMemory(memory, offset(index));
+        return struct;
+    }
+
+    private int offset(int index) {
+        if (index < 0 || (length >= 0 && index >= length)) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+
+        return Math.multiplyExact(index, elementSize);
+    }
+
+    private static int align(int offset, int align) {
+        return (offset + align - 1) & ~(align - 1);
+    }
+}
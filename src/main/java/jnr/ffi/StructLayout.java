@@ -18,10 +18,16 @@
 
 package jnr.ffi;
 
+import jnr.ffi.provider.jffi.StructViewGenerator;
 import jnr.ffi.util.EnumMapper;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  *
@@ -39,6 +45,18 @@ public class StructLayout extends Type {
     int alignment = 1;
     int paddedSize = 0;
 
+    /**
+     * The view factories of each layout class.  Generating a view class is expensive and layouts are often created
+     * per use, so a factory is shared by all instances of a layout class with the same runtime and field offsets.
+     */
+    private static final ClassValue<ViewFactories> VIEW_FACTORIES = new ClassValue<ViewFactories>() {
+        @Override
+        protected ViewFactories computeValue(Class<?> type) {
+            return new ViewFactories();
+        }
+    };
+    private volatile LastView lastView;
+
     /**
      * Creates a new <code>StructLayout</code>.
      *
@@ -96,6 +114,245 @@ public class StructLayout extends Type {
         return sb.toString();
     }
 
+    /**
+     * Creates a view of a record with this layout in native memory.
+     *
+     * <p>
+     * {@code viewInterface} declares getters and setters that are bound to the fields of this layout by name:
+     * {@code getX()}, {@code isX()} or {@code x()} read, and {@code setX(value)} or {@code x(value)} write, the
+     * field named {@code X} or {@code x}.  The view reads and writes each field directly at its offset, so it is
+     * much cheaper than going through the field objects.  The view also implements {@link StructView}, and
+     * {@link StructView#useMemory(jnr.ffi.Pointer, long)} moves it to another record without allocating.
+     *
+     * <pre>
+     *     <code>
+     *     public interface PointView extends StructView {
+     *         int getX();
+     *         void setX(int x);
+     *     }
+     *
+     *     PointView point = layout.newView(PointView.class, memory);
+     *     for (int i = 0; i &lt; count; i++) {
+     *         point.useMemory(memory, (long) i * layout.size());
+     *         sum += point.getX();
+     *     }
+     *     </code>
+     * </pre>
+     *
+     * Integer fields can be accessed as any of {@code boolean}, {@code byte}, {@code short}, {@code int} or
+     * {@code long}, floating point fields as {@code float} or {@code double}, and pointer fields as {@code long}.
+     * Default methods of {@code viewInterface} are inherited by the view, and may call its getters and setters.
+     *
+     * @param viewInterface the interface of the view.
+     * @param memory the native memory holding the record.
+     * @param <T> the interface of the view.
+     * @return a view of the record at the start of {@code memory}.
+     * @throws IllegalArgumentException if a method of {@code viewInterface} does not match a field of this layout.
+     */
+    public final <T> T newView(Class<T> viewInterface, jnr.ffi.Pointer memory) {
+        return getViewFactory(viewInterface).newView(memory, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> StructViewGenerator.Factory<T> getViewFactory(Class<T> viewInterface) {
+        LastView last = lastView;
+        if (last != null && last.viewInterface == viewInterface) {
+            return (StructViewGenerator.Factory<T>) last.factory;
+        }
+
+        ViewFactories viewFactories = VIEW_FACTORIES.get(getClass());
+        ViewBinding binding = viewFactories.getBinding(this, viewInterface);
+        long[] offsets = new long[binding.methods.length];
+        NativeType[] types = new NativeType[binding.methods.length];
+        for (int i = 0; i < offsets.length; i++) {
+            Field field = binding.getField(this, i);
+            offsets[i] = field.offset();
+            if (field instanceof NumberField && !(field instanceof EnumField)) {
+                types[i] = ((NumberField) field).type.getNativeType();
+            } else if (field instanceof AbstractBoolean) {
+                types[i] = ((AbstractBoolean) field).nativeType;
+            } else {
+                throw new IllegalArgumentException("struct field type not supported: "
+                        + field.getClass().getName() + " for " + binding.methods[i]);
+            }
+        }
+
+        StructViewGenerator.Factory<?> factory = viewFactories.get(runtime, viewInterface, binding.methods, offsets, types);
+        lastView = new LastView(viewInterface, factory);
+
+        return (StructViewGenerator.Factory<T>) factory;
+    }
+
+    /** The factory of the last view created from a layout, so creating the same view again skips the lookups */
+    private static final class LastView {
+        final Class<?> viewInterface;
+        final StructViewGenerator.Factory<?> factory;
+
+        LastView(Class<?> viewInterface, StructViewGenerator.Factory<?> factory) {
+            this.viewInterface = viewInterface;
+            this.factory = factory;
+        }
+    }
+
+    private static final class ViewFactories {
+        // There are only ever a few runtimes and view interfaces per layout class, so these are lists
+        private volatile ViewFactory factories;
+        private volatile ViewBinding bindings;
+
+        ViewBinding getBinding(StructLayout layout, Class<?> viewInterface) {
+            for (ViewBinding b = bindings; b != null; b = b.next) {
+                if (b.viewInterface == viewInterface) {
+                    return b;
+                }
+            }
+
+            return addBinding(layout, viewInterface);
+        }
+
+        private synchronized ViewBinding addBinding(StructLayout layout, Class<?> viewInterface) {
+            for (ViewBinding b = bindings; b != null; b = b.next) {
+                if (b.viewInterface == viewInterface) {
+                    return b;
+                }
+            }
+
+            List<Method> methods = new ArrayList<Method>();
+            for (Method method : viewInterface.getMethods()) {
+                if (method.getDeclaringClass() != StructView.class && Modifier.isAbstract(method.getModifiers())) {
+                    methods.add(method);
+                }
+            }
+
+            java.lang.reflect.Field[] fields = new java.lang.reflect.Field[methods.size()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = layout.viewField(methods.get(i));
+            }
+
+            return bindings = new ViewBinding(viewInterface, methods.toArray(new Method[0]), fields, bindings);
+        }
+
+        StructViewGenerator.Factory<?> get(Runtime runtime, Class<?> viewInterface, Method[] methods,
+                                           long[] offsets, NativeType[] types) {
+            StructViewGenerator.Factory<?> factory = find(factories, runtime, viewInterface, offsets, types);
+            return factory != null ? factory : add(runtime, viewInterface, methods, offsets, types);
+        }
+
+        private synchronized StructViewGenerator.Factory<?> add(Runtime runtime, Class<?> viewInterface, Method[] methods,
+                                                                long[] offsets, NativeType[] types) {
+            StructViewGenerator.Factory<?> factory = find(factories, runtime, viewInterface, offsets, types);
+            if (factory == null) {
+                factory = StructViewGenerator.newFactory(runtime, viewInterface, methods, offsets, types);
+                factories = new ViewFactory(runtime, viewInterface, offsets, types, factory, factories);
+            }
+
+            return factory;
+        }
+
+        private static StructViewGenerator.Factory<?> find(ViewFactory f, Runtime runtime, Class<?> viewInterface,
+                                                           long[] offsets, NativeType[] types) {
+            for (; f != null; f = f.next) {
+                if (f.runtime == runtime && f.viewInterface == viewInterface
+                        && Arrays.equals(f.offsets, offsets) && Arrays.equals(f.types, types)) {
+                    return f.factory;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * The java field of a layout class that each accessor of a view interface is bound to.  The offsets of the
+     * fields can differ between instances of the class, so only the binding is shared.
+     */
+    private static final class ViewBinding {
+        final Class<?> viewInterface;
+        final Method[] methods;
+        final java.lang.reflect.Field[] fields;
+        final ViewBinding next;
+
+        ViewBinding(Class<?> viewInterface, Method[] methods, java.lang.reflect.Field[] fields, ViewBinding next) {
+            this.viewInterface = viewInterface;
+            this.methods = methods;
+            this.fields = fields;
+            this.next = next;
+        }
+
+        Field getField(StructLayout layout, int index) {
+            Object value;
+            try {
+                value = fields[index].get(layout);
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+            if (!(value instanceof Field)) {
+                throw new IllegalArgumentException("no field " + fields[index].getName() + " in "
+                        + layout.getClass().getName() + " for " + methods[index]);
+            }
+
+            return (Field) value;
+        }
+    }
+
+    private static final class ViewFactory {
+        final Runtime runtime;
+        final Class<?> viewInterface;
+        final long[] offsets;
+        final NativeType[] types;
+        final StructViewGenerator.Factory<?> factory;
+        final ViewFactory next;
+
+        ViewFactory(Runtime runtime, Class<?> viewInterface, long[] offsets, NativeType[] types,
+                    StructViewGenerator.Factory<?> factory, ViewFactory next) {
+            this.runtime = runtime;
+            this.viewInterface = viewInterface;
+            this.offsets = offsets;
+            this.types = types;
+            this.factory = factory;
+            this.next = next;
+        }
+    }
+
+    private java.lang.reflect.Field viewField(Method accessor) {
+        java.lang.String name = accessor.getName();
+        int parameterCount = accessor.getParameterTypes().length;
+        java.lang.String property = name;
+        if (parameterCount == 0 && name.length() > 3 && name.startsWith("get")) {
+            property = name.substring(3);
+        } else if (parameterCount == 0 && name.length() > 2 && name.startsWith("is")) {
+            property = name.substring(2);
+        } else if (parameterCount == 1 && name.length() > 3 && name.startsWith("set")) {
+            property = name.substring(3);
+        }
+
+        java.lang.reflect.Field field = findField(property);
+        if (field == null && Character.isUpperCase(property.charAt(0))) {
+            field = findField(Character.toLowerCase(property.charAt(0)) + property.substring(1));
+        }
+        if (field == null) {
+            throw new IllegalArgumentException("no field " + property + " in " + getClass().getName() + " for " + accessor);
+        }
+
+        return field;
+    }
+
+    private java.lang.reflect.Field findField(java.lang.String name) {
+        for (Class<?> c = getClass(); c != StructLayout.class; c = c.getSuperclass()) {
+            try {
+                java.lang.reflect.Field field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(this) instanceof Field ? field : null;
+
+            } catch (NoSuchFieldException ex) {
+                // look in the superclass
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        return null;
+    }
+
     private static int align(int offset, int alignment) {
         return (offset + alignment - 1) & ~(alignment - 1);
     }
@@ -263,12 +520,16 @@ public class StructLayout extends Type {
      * Base class for Boolean fields
      */
     protected abstract class AbstractBoolean extends AbstractField {
+        private final NativeType nativeType;
+
         protected AbstractBoolean(NativeType type) {
             super(type);
+            this.nativeType = type;
         }
 
         protected AbstractBoolean(NativeType type, Offset offset) {
             super(type, offset);
+            this.nativeType = type;
         }
 
         /**
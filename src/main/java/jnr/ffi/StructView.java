@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+/**
+ * A flyweight over one record of a {@link StructLayout} in native memory.
+ *
+ * <p>
+ * Every view created by {@link StructLayout#newView(Class, Pointer)} implements this interface, and a view
+ * interface may extend it to make these methods available without a cast.  Moving a view with
+ * {@link #useMemory(Pointer, long)} does not allocate, so one view can walk any number of records.
+ *
+ * <b>Note:</b> Views are not threadsafe.
+ */
+public interface StructView {
+    /**
+     * Moves this view to the record at {@code offset} within {@code memory}.
+     *
+     * @param memory the native memory holding the record.
+     * @param offset the offset of the record within {@code memory}.
+     * @throws IllegalArgumentException if {@code memory} is not direct memory.
+     * @throws IndexOutOfBoundsException if the record does not fit within {@code memory}.
+     */
+    void useMemory(Pointer memory, long offset);
+
+    /**
+     * Gets the memory this view is over.
+     *
+     * @return the native memory holding the record.
+     */
+    Pointer getMemory();
+
+    /**
+     * Gets the offset of the record within the memory this view is over.
+     *
+     * @return the offset of the record.
+     */
+    long getOffset();
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2008-2010 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that a {@link String} result is a constant native string, such as those returned by
+ * {@code strerror}, version queries or enum-to-name functions.
+ *
+ * <p>The decoded {@code String} is cached by the address it was read from, and returned again, without
+ * decoding, whenever the function returns the same address.  Only use this for functions that return
+ * pointers to strings which never change, since a string that is modified in place, or freed and its
+ * memory reused, would still be returned from the cache.
+ *
+ * <p>Each annotated method has its own cache, which holds the {@link #value()} most recently used strings.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface CachedString {
+    /**
+     * The maximum number of strings to cache, between 1 and 1048576.
+     *
+     * @return the maximum number of strings to cache.
+     */
+    int value() default 64;
+}
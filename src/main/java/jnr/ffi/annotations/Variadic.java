@@ -12,6 +12,10 @@ import java.lang.annotation.RetentionPolicy;
  * args end and variadic arguments begin, causing them all to be passed the way fixed arguments get passed on the given
  * platform.
  *
+ * Declaring one such binding per concrete argument shape (e.g. one {@code printf} overload taking
+ * {@code (String, int, double)}) also lets the ASM library loader generate a direct, non-boxing invocation for
+ * that shape instead of going through the generic varargs invoker.
+ *
  * See https://github.com/jnr/jnr-ffi/pull/292
  */
 @Retention(RetentionPolicy.RUNTIME)
@@ -24,4 +24,38 @@ package jnr.ffi.provider;
 public interface ClosureManager {
     public abstract <T> T newClosure(Class<? extends T> closureClass, T instance);
     public abstract <T> jnr.ffi.Pointer getClosurePointer(Class<? extends T> closureClass, T instance);
+
+    /**
+     * Generates the native closure support for a closure class and allocates native closures for it up front,
+     * so that binding up to {@code count} callables of that class later does not generate any code or allocate
+     * any native closures.  Closure managers that cannot allocate ahead of use ignore it.
+     *
+     * @param closureClass the closure class, an interface or class with a {@link jnr.ffi.annotations.Delegate} method.
+     * @param count the number of native closures to allocate.
+     */
+    default void preallocate(Class<?> closureClass, int count) {
+    }
+
+    /**
+     * Reports how the native closures for a closure class are being used.
+     *
+     * @param closureClass the closure class.
+     * @return a snapshot of the closures allocated and in use for the class.
+     * @throws UnsupportedOperationException if this closure manager does not track its closures.
+     */
+    default ClosureOccupancy getOccupancy(Class<?> closureClass) {
+        throw new UnsupportedOperationException("closure occupancy not supported by " + getClass().getName());
+    }
+
+    /**
+     * Gets a native closure for a callable, and holds the callable strongly until the returned handle is closed.
+     *
+     * @param closureClass the closure class, an interface or class with a {@link jnr.ffi.annotations.Delegate} method.
+     * @param callable the java object to invoke when the native closure is called.
+     * @return a handle on the pinned closure.
+     * @throws UnsupportedOperationException if this closure manager does not support pinning.
+     */
+    default <T> PinnedClosure<T> pin(Class<? extends T> closureClass, T callable) {
+        throw new UnsupportedOperationException("pinned closures not supported by " + getClass().getName());
+    }
 }
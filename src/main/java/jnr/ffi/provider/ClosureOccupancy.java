@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider;
+
+/**
+ * A snapshot of how the native closures allocated for a closure class are being used.
+ *
+ * @see ClosureManager#getOccupancy(Class)
+ */
+public final class ClosureOccupancy {
+    private final long allocated;
+    private final long inUse;
+
+    public ClosureOccupancy(long allocated, long inUse) {
+        this.allocated = allocated;
+        this.inUse = inUse;
+    }
+
+    /**
+     * Gets the number of native closures allocated for the class, whether in use or not.
+     *
+     * @return the number of native closures.
+     */
+    public long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Gets the number of native closures currently bound to a java callable.
+     *
+     * @return the number of native closures in use.
+     */
+    public long getInUse() {
+        return inUse;
+    }
+
+    /**
+     * Gets the number of native closures ready to be bound to a callable without allocating a new one.
+     *
+     * @return the number of free native closures.
+     */
+    public long getAvailable() {
+        return Math.max(0, allocated - inUse);
+    }
+
+    @Override
+    public String toString() {
+        return "ClosureOccupancy[allocated=" + allocated + ", inUse=" + inUse + ", available=" + getAvailable() + "]";
+    }
+}
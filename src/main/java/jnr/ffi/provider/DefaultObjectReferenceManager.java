@@ -22,18 +22,26 @@ import jnr.ffi.ObjectReferenceManager;
 import jnr.ffi.Pointer;
 import jnr.ffi.Runtime;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- *
+ * Maps objects to ids derived from their identity hash codes, in a table split into independently locked
+ * stripes.  Each stripe is an open addressing hash table keyed by the primitive id, so adding, getting and
+ * removing a reference neither boxes the id nor allocates anything beyond the returned pointer.  Getting a
+ * reference takes no lock, so native callbacks looking up their data do not contend with threads adding or
+ * removing references.
  */
 public final class DefaultObjectReferenceManager extends ObjectReferenceManager {
+    private static final int STRIPE_COUNT = Integer.highestOneBit(Math.max(16, java.lang.Runtime.getRuntime().availableProcessors() * 4));
+
     private final Runtime runtime;
-    private final ConcurrentMap<Long, ObjectReference> references = new ConcurrentHashMap<Long, ObjectReference>();
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
 
     public DefaultObjectReferenceManager(Runtime runtime) {
         this.runtime = runtime;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
     }
 
     public Pointer add(Object obj) {
@@ -41,24 +49,21 @@ public final class DefaultObjectReferenceManager extends ObjectReferenceManager
             throw new IllegalArgumentException("reference to null value not allowed");
         }
 
-        long nextId = id(obj);
-
-        ObjectReference ptr;
-        while (references.putIfAbsent(nextId, ptr = new ObjectReference(runtime, nextId, obj)) != null) {
-            // A collision on the identity hash is extremely rare, but possible, so probe for a vacant slot
-            ++nextId;
+        ObjectReference ptr = new ObjectReference(runtime, id(obj), obj);
+        while (!stripe(ptr.address()).add(ptr)) {
+            // A collision on the identity hash is extremely rare, but possible, so probe for a vacant id
+            ptr = new ObjectReference(runtime, (ptr.address() + 1) & runtime.addressMask(), obj);
         }
 
         return ptr;
     }
 
     public boolean remove(Pointer reference) {
-        ObjectReference entry = references.remove(reference.address());
-        return entry != null;
+        return stripe(reference.address()).remove(reference.address());
     }
 
     public Object get(Pointer reference) {
-        ObjectReference ptr = references.get(reference.address());
+        ObjectReference ptr = stripe(reference.address()).get(reference.address());
         return ptr != null ? ptr.referent : null;
     }
 
@@ -66,6 +71,117 @@ public final class DefaultObjectReferenceManager extends ObjectReferenceManager
         return ((0xcafebabeL << 32) | (System.identityHashCode(obj) & 0xffffffffL)) & runtime.addressMask();
     }
 
+    private Stripe stripe(long id) {
+        return stripes[hash(id) >>> 16 & (stripes.length - 1)];
+    }
+
+    private static int hash(long id) {
+        return ((int) (id ^ (id >>> 32))) * 0x9e3779b9;
+    }
+
+    /**
+     * A linear probing hash table of references, keyed by id.  Adding and removing lock the stripe, but getting
+     * does not: entries never move within a table, a removed entry is only marked as removed, and a resized table
+     * is filled before it is published, so a lookup always finds a reference that was added and not removed.
+     */
+    private static final class Stripe {
+        private static final Object REMOVED = new Object();
+
+        private volatile AtomicReferenceArray<Object> table = new AtomicReferenceArray<Object>(16);
+        private int size; // the references in the table
+        private int used; // the slots that are not null, including those of removed references
+
+        synchronized boolean add(ObjectReference ref) {
+            if ((used + 1) * 4 > table.length() * 3) {
+                rehash();
+            }
+
+            AtomicReferenceArray<Object> table = this.table;
+            long id = ref.address();
+            int mask = table.length() - 1;
+            int slot = -1;
+            for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+                Object entry = table.get(i);
+                if (entry == null) {
+                    if (slot < 0) {
+                        slot = i;
+                        ++used;
+                    }
+                    table.set(slot, ref);
+                    ++size;
+                    return true;
+
+                } else if (entry == REMOVED) {
+                    // Reuse the first removed slot, once the id is known not to be in the table
+                    if (slot < 0) {
+                        slot = i;
+                    }
+
+                } else if (((ObjectReference) entry).address() == id) {
+                    return false;
+                }
+            }
+        }
+
+        ObjectReference get(long id) {
+            AtomicReferenceArray<Object> table = this.table;
+            int mask = table.length() - 1;
+            for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+                Object entry = table.get(i);
+                if (entry == null) {
+                    return null;
+
+                } else if (entry != REMOVED && ((ObjectReference) entry).address() == id) {
+                    return (ObjectReference) entry;
+                }
+            }
+        }
+
+        synchronized boolean remove(long id) {
+            AtomicReferenceArray<Object> table = this.table;
+            int mask = table.length() - 1;
+            for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+                Object entry = table.get(i);
+                if (entry == null) {
+                    return false;
+
+                } else if (entry != REMOVED && ((ObjectReference) entry).address() == id) {
+                    table.set(i, REMOVED);
+                    --size;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Copies the references into a new table, which drops the removed ones, and grows it so it is at most
+         * half full.
+         */
+        private void rehash() {
+            int capacity = 16;
+            while (capacity < (size + 1) * 2) {
+                capacity *= 2;
+            }
+
+            AtomicReferenceArray<Object> oldTable = table;
+            AtomicReferenceArray<Object> newTable = new AtomicReferenceArray<Object>(capacity);
+            int mask = capacity - 1;
+            for (int j = 0; j < oldTable.length(); j++) {
+                Object entry = oldTable.get(j);
+                if (entry != null && entry != REMOVED) {
+                    int i = hash(((ObjectReference) entry).address()) & mask;
+                    while (newTable.get(i) != null) {
+                        i = (i + 1) & mask;
+                    }
+                    newTable.set(i, entry);
+                }
+            }
+
+            used = size;
+            table = newTable;
+        }
+    }
+
     private static final class ObjectReference extends InAccessibleMemoryIO {
         private final Object referent;
 
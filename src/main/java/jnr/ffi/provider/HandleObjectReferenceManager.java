@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider;
+
+import jnr.ffi.ObjectReferenceManager;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps objects to handles that index a growable table of slots.
+ *
+ * Each handle encodes the index of its slot and the generation of that slot at the time it was issued.  The
+ * generation is bumped whenever a slot is freed, so looking up a handle is a single array load, and a handle
+ * that has already been removed is reported instead of silently resolving to whichever object reuses its slot.
+ *
+ * Lookups take no locks; adding and removing references is serialized.
+ */
+public final class HandleObjectReferenceManager extends ObjectReferenceManager {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Runtime runtime;
+    private final int indexBits;
+    private final long indexMask;
+    private final int maxGeneration;
+
+    private volatile AtomicReferenceArray<Handle> slots = new AtomicReferenceArray<Handle>(INITIAL_CAPACITY);
+    private int[] generations = new int[INITIAL_CAPACITY];
+    private int[] free = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int used;
+
+    public HandleObjectReferenceManager(Runtime runtime) {
+        this.runtime = runtime;
+        // 64 bit handles split evenly; 32 bit handles keep 12 bits of generation and address up to 1M slots
+        this.indexBits = runtime.addressSize() == 8 ? 32 : 20;
+        this.indexMask = (1L << indexBits) - 1;
+        this.maxGeneration = (int) Math.min(Integer.MAX_VALUE, (1L << (runtime.addressSize() * 8 - indexBits)) - 1);
+    }
+
+    public synchronized Pointer add(Object obj) {
+        if (obj == null) {
+            throw new IllegalArgumentException("reference to null value not allowed");
+        }
+
+        int index;
+        if (freeCount > 0) {
+            index = free[--freeCount];
+        } else {
+            if (used == slots.length()) {
+                grow();
+            }
+            index = used++;
+            generations[index] = 1;
+        }
+
+        Handle handle = new Handle(runtime, ((long) generations[index] << indexBits) | index, obj);
+        slots.set(index, handle);
+
+        return handle;
+    }
+
+    /**
+     * Removes a mapping from java object to native pointer.
+     *
+     * @param reference a native memory pointer.
+     * @return true if the mapping was removed, false if {@code reference} was never issued by this manager or
+     * has already been removed.
+     */
+    public synchronized boolean remove(Pointer reference) {
+        AtomicReferenceArray<Handle> slots = this.slots;
+        long address = reference.address();
+        long index = address & indexMask;
+        if (index >= used || !isCurrent(slots.get((int) index), address)) {
+            return false;
+        }
+
+        slots.set((int) index, null);
+        // Never reissue generation zero, so no handle is ever a NULL pointer
+        generations[(int) index] = generations[(int) index] < maxGeneration ? generations[(int) index] + 1 : 1;
+        free[freeCount++] = (int) index;
+
+        return true;
+    }
+
+    /**
+     * Gets the java object that is mapped to the native memory address referred to by {@code reference}.
+     *
+     * @param reference a native memory pointer.
+     * @return The java object corresponding to {@code pointer}.
+     * @throws IllegalArgumentException if {@code reference} was never issued by this manager, or has been removed.
+     */
+    public Object get(Pointer reference) {
+        AtomicReferenceArray<Handle> slots = this.slots;
+        long address = reference.address();
+        long index = address & indexMask;
+        Handle handle = index < slots.length() ? slots.get((int) index) : null;
+        if (!isCurrent(handle, address)) {
+            throw new IllegalArgumentException("stale or invalid object reference 0x" + Long.toHexString(address));
+        }
+
+        return handle.referent;
+    }
+
+    private static boolean isCurrent(Handle handle, long address) {
+        return handle != null && handle.address() == address;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(indexMask + 1, Math.min(Integer.MAX_VALUE - 8, (long) used * 2));
+        if (capacity <= used) {
+            throw new IllegalStateException("too many object references");
+        }
+
+        AtomicReferenceArray<Handle> oldSlots = slots;
+        AtomicReferenceArray<Handle> newSlots = new AtomicReferenceArray<Handle>(capacity);
+        for (int i = 0; i < used; i++) {
+            newSlots.set(i, oldSlots.get(i));
+        }
+
+        generations = Arrays.copyOf(generations, capacity);
+        free = Arrays.copyOf(free, capacity);
+        slots = newSlots;
+    }
+
+    private static final class Handle extends InAccessibleMemoryIO {
+        private final Object referent;
+
+        Handle(jnr.ffi.Runtime runtime, long address, Object referent) {
+            super(runtime, address, true);
+            this.referent = referent;
+        }
+
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (address() ^ (address() >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Pointer && ((Pointer) obj).address() == address();
+        }
+    }
+}
@@ -32,11 +32,22 @@ public class InvocationSession {
     public static interface PostInvoke {
         void postInvoke();
     }
+    /**
+     * Runs any post-invoke actions and releases the objects kept alive for the invocation.
+     *
+     * Once finished, the session may be reused for another invocation without allocating.
+     */
     public void finish() {
-        if (list != null) for (PostInvoke p : list) {
-            try {
-                p.postInvoke();
-            } catch (Throwable t) {}
+        if (list != null) {
+            for (PostInvoke p : list) {
+                try {
+                    p.postInvoke();
+                } catch (Throwable t) {}
+            }
+            list.clear();
+        }
+        if (liveObjects != null) {
+            liveObjects.clear();
         }
     }
     public void addPostInvoke(PostInvoke postInvoke) {
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2008-2010 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider;
+
+import jnr.ffi.Pointer;
+
+/**
+ * A scope for native memory allocations.
+ *
+ * Memory is carved out of large native chunks, and all of it is freed at once when the arena is closed,
+ * without relying on finalization.  Pointers allocated from an arena must not be used after it is closed.
+ *
+ * <pre>
+ * try (MemoryArena arena = runtime.getMemoryManager().newArena()) {
+ *     Pointer buf = arena.allocate(256);
+ *     ...
+ * }
+ * </pre>
+ */
+public interface MemoryArena extends AutoCloseable {
+    /**
+     * Allocates zero-filled memory, aligned for any primitive type.
+     *
+     * @param size the number of bytes to allocate.
+     * @return a pointer to the memory.
+     */
+    public abstract Pointer allocate(long size);
+
+    /**
+     * Allocates memory, aligned for any primitive type.
+     *
+     * @param size the number of bytes to allocate.
+     * @param clear whether the memory should be zero-filled.
+     * @return a pointer to the memory.
+     */
+    public abstract Pointer allocate(long size, boolean clear);
+
+    /**
+     * Allocates memory with a specific alignment.
+     *
+     * @param size the number of bytes to allocate.
+     * @param align the alignment of the memory, a power of two.
+     * @param clear whether the memory should be zero-filled.
+     * @return a pointer to the memory.
+     */
+    public abstract Pointer allocate(long size, int align, boolean clear);
+
+    /**
+     * Frees all the memory allocated from this arena.  Closing an arena more than once has no effect.
+     */
+    public abstract void close();
+}
@@ -36,4 +36,26 @@ public interface MemoryManager {
     public abstract Pointer newPointer(long address);
     public abstract Pointer newPointer(long address, long size);
     public abstract Pointer newOpaquePointer(long address);
+
+    /**
+     * Creates an arena that allocates native memory in bulk and frees it all when closed.  The arena may only
+     * be used by the thread that created it.
+     *
+     * @return a new arena.
+     * @throws UnsupportedOperationException if this memory manager does not support arenas.
+     */
+    default MemoryArena newArena() {
+        throw new UnsupportedOperationException("memory arenas not supported by " + getClass().getName());
+    }
+
+    /**
+     * Creates an arena that allocates native memory in bulk and frees it all when closed, and which may be used
+     * from multiple threads.
+     *
+     * @return a new thread-safe arena.
+     * @throws UnsupportedOperationException if this memory manager does not support arenas.
+     */
+    default MemoryArena newSharedArena() {
+        throw new UnsupportedOperationException("memory arenas not supported by " + getClass().getName());
+    }
 }
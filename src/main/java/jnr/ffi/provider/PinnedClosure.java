@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider;
+
+import jnr.ffi.Pointer;
+
+/**
+ * A native closure whose java callable is strongly held until the closure is closed.
+ *
+ * Upcalls through a pinned closure go straight to the callable, without checking whether it has been
+ * garbage collected.  This suits callbacks that are registered once with a native library and called
+ * many times.
+ *
+ * <pre>
+ * try (PinnedClosure&lt;Callback&gt; closure = runtime.getClosureManager().pin(Callback.class, callback)) {
+ *     lib.register_callback(closure.getPointer());
+ *     ...
+ * }
+ * </pre>
+ *
+ * @param <T> the closure type.
+ * @see ClosureManager#pin(Class, Object)
+ */
+public interface PinnedClosure<T> extends AutoCloseable {
+    /**
+     * Gets the native function pointer for the closure.
+     *
+     * @return the native function pointer.
+     */
+    public abstract Pointer getPointer();
+
+    /**
+     * Gets the java callable the closure invokes.
+     *
+     * @return the callable.
+     */
+    public abstract T getCallable();
+
+    /**
+     * Releases the strong reference to the callable.  The native closure then stays valid only as long as
+     * the callable is otherwise reachable.  Closing a pinned closure more than once has no effect.
+     */
+    public abstract void close();
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.converters;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.annotations.CachedString;
+import jnr.ffi.mapper.FromNativeContext;
+import jnr.ffi.mapper.FromNativeConverter;
+
+/**
+ * Converts a native pointer to a constant string into a java String, decoding each distinct address only once.
+ *
+ * The most recently used strings are kept in a least recently used cache keyed by address, so a hit neither
+ * decodes nor allocates.  The converter is not {@link FromNativeConverter.Cacheable}, so each method gets a
+ * cache of its own.
+ *
+ * @see CachedString
+ */
+@FromNativeConverter.NoContext
+public final class CachedStringResultConverter implements FromNativeConverter<String, Pointer> {
+    static final int MAX_CAPACITY = 1 << 20;
+
+    private final FromNativeConverter<String, Pointer> converter;
+
+    // Open addressing table from address to entry index + 1, or 0 if the bucket is empty
+    private final int[] table;
+
+    // The entries, linked in order of use from head (most recent) to tail (least recent)
+    private final long[] addresses;
+    private final String[] strings;
+    private final int[] prev, next;
+    private int size, head = -1, tail = -1;
+
+    public static FromNativeConverter<String, Pointer> getInstance(FromNativeConverter<String, Pointer> converter, CachedString cachedString) {
+        return new CachedStringResultConverter(converter, cachedString.value());
+    }
+
+    CachedStringResultConverter(FromNativeConverter<String, Pointer> converter, int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("invalid cache size " + capacity);
+        }
+
+        this.converter = converter;
+        this.table = new int[Integer.highestOneBit(capacity) * 4];
+        this.addresses = new long[capacity];
+        this.strings = new String[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+    }
+
+    @Override
+    public String fromNative(Pointer pointer, FromNativeContext context) {
+        if (pointer == null) {
+            return null;
+        }
+
+        final long address = pointer.address();
+        synchronized (this) {
+            int entry = find(address);
+            if (entry >= 0) {
+                moveToHead(entry);
+                return strings[entry];
+            }
+        }
+
+        // Decode outside the lock; if another thread cached the same address meanwhile, its String wins
+        String string = converter.fromNative(pointer, context);
+        synchronized (this) {
+            int entry = find(address);
+            if (entry >= 0) {
+                moveToHead(entry);
+                return strings[entry];
+            }
+
+            add(address, string);
+            return string;
+        }
+    }
+
+    @Override
+    public Class<Pointer> nativeType() {
+        return Pointer.class;
+    }
+
+    private int find(long address) {
+        int mask = table.length - 1;
+        for (int i = hash(address) & mask; table[i] != 0; i = (i + 1) & mask) {
+            if (addresses[table[i] - 1] == address) {
+                return table[i] - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    private void add(long address, String string) {
+        int entry;
+        if (size < addresses.length) {
+            entry = size++;
+        } else {
+            entry = tail;
+            unlink(entry);
+            remove(addresses[entry]);
+        }
+
+        addresses[entry] = address;
+        strings[entry] = string;
+        linkHead(entry);
+
+        int mask = table.length - 1;
+        int i = hash(address) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry + 1;
+    }
+
+    private void remove(long address) {
+        int mask = table.length - 1;
+        int i = hash(address) & mask;
+        while (addresses[table[i] - 1] != address) {
+            i = (i + 1) & mask;
+        }
+
+        // Shift later entries of the probe sequence back into the hole, so lookups never need tombstones
+        for (int j = i; ; ) {
+            table[i] = 0;
+            int home;
+            do {
+                j = (j + 1) & mask;
+                if (table[j] == 0) {
+                    return;
+                }
+                home = hash(addresses[table[j] - 1]) & mask;
+            } while (i <= j ? (i < home && home <= j) : (i < home || home <= j));
+
+            table[i] = table[j];
+            i = j;
+        }
+    }
+
+    private void moveToHead(int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkHead(entry);
+        }
+    }
+
+    private void linkHead(int entry) {
+        prev[entry] = -1;
+        next[entry] = head;
+        if (head >= 0) {
+            prev[head] = entry;
+        }
+        head = entry;
+        if (tail < 0) {
+            tail = entry;
+        }
+    }
+
+    private void unlink(int entry) {
+        if (prev[entry] >= 0) {
+            next[prev[entry]] = next[entry];
+        } else {
+            head = next[entry];
+        }
+
+        if (next[entry] >= 0) {
+            prev[next[entry]] = prev[entry];
+        } else {
+            tail = prev[entry];
+        }
+    }
+
+    private static int hash(long address) {
+        // Use the high bits of the product, since the low bits of aligned addresses are always zero
+        return (int) ((address * 0x9e3779b97f4a7c15L) >>> 32);
+    }
+}
@@ -48,7 +48,8 @@ public class CharSequenceParameterConverter implements ToNativeConverter<CharSeq
     private final ThreadLocal<Reference<CharsetEncoder>> localEncoder = new ThreadLocal<Reference<CharsetEncoder>>();
 
     private final Charset charset;
-
+    private final int terminatorWidth;
+    private final int singleByteLimit;
 
     public static ToNativeConverter<CharSequence, ByteBuffer> getInstance(Charset charset, ToNativeContext toNativeContext) {
         return Charset.defaultCharset().equals(charset) ? DEFAULT : new CharSequenceParameterConverter(charset);
@@ -92,6 +93,8 @@ public class CharSequenceParameterConverter implements ToNativeConverter<CharSeq
 
     private CharSequenceParameterConverter(Charset charset) {
         this.charset = charset;
+        this.terminatorWidth = StringUtil.terminatorWidth(charset);
+        this.singleByteLimit = StringUtil.singleByteLimit(charset);
     }
 
     @Override
@@ -100,8 +103,15 @@ public class CharSequenceParameterConverter implements ToNativeConverter<CharSeq
             return null;
         }
 
+        if (singleByteLimit != 0) {
+            ByteBuffer byteBuffer = encodeSingleByte(string);
+            if (byteBuffer != null) {
+                return byteBuffer;
+            }
+        }
+
         CharsetEncoder encoder = getEncoder(charset, localEncoder);
-        ByteBuffer byteBuffer = ByteBuffer.wrap(new byte[(int) (string.length() * encoder.averageBytesPerChar()) + 4]);
+        ByteBuffer byteBuffer = ByteBuffer.wrap(new byte[(int) (string.length() * encoder.averageBytesPerChar()) + terminatorWidth]);
         CharBuffer charBuffer = CharBuffer.wrap(string);
 
         encoder.reset();
@@ -120,15 +130,39 @@ public class CharSequenceParameterConverter implements ToNativeConverter<CharSeq
             }
         }
 
-        // ensure native memory is NUL terminated (assume max wchar_t 4 byte termination needed)
-        if (byteBuffer.remaining() <= 4) byteBuffer = grow(byteBuffer);
-        byteBuffer.position(byteBuffer.position() + 4);
+        // ensure native memory is NUL terminated
+        if (byteBuffer.remaining() < terminatorWidth) byteBuffer = grow(byteBuffer);
+        byteBuffer.position(byteBuffer.position() + terminatorWidth);
 
         byteBuffer.flip();
 
         return byteBuffer;
     }
 
+    /**
+     * Encodes a string whose chars are all below {@code singleByteLimit}, e.g. ASCII paths and keys, by copying
+     * each char into a byte array of exactly the right size.
+     *
+     * The string is checked before the array is allocated, so a string that needs the encoder costs no garbage.
+     *
+     * @return the encoded string, or null if it contains a char that needs the charset encoder.
+     */
+    private ByteBuffer encodeSingleByte(CharSequence string) {
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) >= singleByteLimit) {
+                return null;
+            }
+        }
+
+        final byte[] bytes = new byte[length + terminatorWidth];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) string.charAt(i);
+        }
+
+        return ByteBuffer.wrap(bytes);
+    }
+
     private static ByteBuffer grow(ByteBuffer oldBuffer) {
         ByteBuffer buf = ByteBuffer.wrap(new byte[oldBuffer.capacity() * 2]);
         oldBuffer.flip();
@@ -19,6 +19,7 @@
 package jnr.ffi.provider.converters;
 
 import jnr.ffi.Pointer;
+import jnr.ffi.annotations.CachedString;
 import jnr.ffi.annotations.Encoding;
 import jnr.ffi.mapper.FromNativeContext;
 import jnr.ffi.mapper.FromNativeConverter;
@@ -72,7 +73,10 @@ public class StringResultConverter implements FromNativeConverter<String, Pointe
             charset = Charset.forName(e.value());
         }
 
-        return getInstance(charset);
+        CachedString cachedString = getCachedString(fromNativeContext.getAnnotations());
+        return cachedString != null
+                ? CachedStringResultConverter.getInstance(getInstance(charset), cachedString)
+                : getInstance(charset);
     }
 
     @Override
@@ -81,6 +85,11 @@ public class StringResultConverter implements FromNativeConverter<String, Pointe
             return null;
         }
 
+        if (terminatorWidth == 1) {
+            // The terminator is a single NUL, so the pointer can find it and copy the string out in one pass
+            return pointer.getString(0, (int) Math.min(pointer.size(), Integer.MAX_VALUE), charset);
+        }
+
         Search: for (int idx = 0; ; ) {
             idx += pointer.indexOf(idx, (byte) 0);
             for (int tcount = 1; tcount < terminatorWidth; tcount++) {
@@ -114,4 +123,14 @@ public class StringResultConverter implements FromNativeConverter<String, Pointe
 
         return null;
     }
+
+    private static CachedString getCachedString(Collection<Annotation> annotations) {
+        for (Annotation a : annotations) {
+            if (a instanceof CachedString) {
+                return (CachedString) a;
+            }
+        }
+
+        return null;
+    }
 }
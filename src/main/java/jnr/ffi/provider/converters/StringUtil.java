@@ -128,11 +128,33 @@ final class StringUtil {
         } else if (charset.equals(UTF16) || charset.equals(UTF16LE) || charset.equals(UTF16BE)) {
             return 2;
 
+        } else if (charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1) {
+            // Single byte charsets, such as windows-1252 or KOI8-R
+            return 1;
+
         } else {
             return 4;
         }
     }
 
+    /**
+     * Gets the lowest char value that {@code charset} does not encode as a single byte of the same value.
+     *
+     * @param charset the charset.
+     * @return the limit, or 0 if no chars are encoded that way.
+     */
+    static int singleByteLimit(Charset charset) {
+        if (charset.equals(UTF8) || charset.equals(USASCII)) {
+            return 0x80;
+
+        } else if (charset.equals(ISO8859_1)) {
+            return 0x100;
+
+        } else {
+            return 0;
+        }
+    }
+
     static int stringLength(ByteBuffer in, int terminatorWidth) {
         if (in.hasArray()) {
             byte[] array = in.array();
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.converters;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.Struct;
+import jnr.ffi.StructArray;
+import jnr.ffi.mapper.DataConverter;
+import jnr.ffi.mapper.FromNativeContext;
+import jnr.ffi.mapper.FromNativeConverter;
+import jnr.ffi.mapper.SignatureType;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Passes a {@link StructArray} as a pointer to its first element, and wraps a native pointer result in a
+ * {@link StructArray} of unknown length.
+ */
+@ToNativeConverter.NoContext
+@ToNativeConverter.Cacheable
+@FromNativeConverter.Cacheable
+public final class StructArrayConverter implements DataConverter<StructArray, Pointer> {
+    private static final StructArrayConverter TO_NATIVE = new StructArrayConverter(null);
+    private final Class<? extends Struct> structClass;
+
+    private StructArrayConverter(Class<? extends Struct> structClass) {
+        this.structClass = structClass;
+    }
+
+    public static ToNativeConverter<StructArray, Pointer> getToNativeConverter(SignatureType type, ToNativeContext toNativeContext) {
+        return TO_NATIVE;
+    }
+
+    public static FromNativeConverter<StructArray, Pointer> getFromNativeConverter(SignatureType type, FromNativeContext fromNativeContext) {
+        Type parameterizedType = type.getGenericType();
+        if (!(parameterizedType instanceof ParameterizedType)) {
+            throw new IllegalArgumentException("StructArray result must declare its element type");
+        }
+
+        Type structType = ((ParameterizedType) parameterizedType).getActualTypeArguments()[0];
+        if (!(structType instanceof Class) || !Struct.class.isAssignableFrom((Class) structType)) {
+            throw new IllegalArgumentException("unsupported StructArray element type " + structType);
+        }
+
+        return new StructArrayConverter(((Class<?>) structType).asSubclass(Struct.class));
+    }
+
+    @Override
+    public Class<Pointer> nativeType() {
+        return Pointer.class;
+    }
+
+    @Override
+    public Pointer toNative(StructArray value, ToNativeContext context) {
+        return value != null ? value.getMemory() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public StructArray fromNative(Pointer nativeValue, FromNativeContext context) {
+        return nativeValue != null ? new StructArray(structClass, nativeValue, -1) : null;
+    }
+}
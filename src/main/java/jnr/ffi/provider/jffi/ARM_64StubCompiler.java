@@ -28,16 +28,31 @@ import jnr.a64asm.Pre_index;
 import jnr.a64asm.Register;
 import jnr.a64asm.Shift;
 import jnr.ffi.CallingConvention;
+import jnr.ffi.NativeType;
+import jnr.ffi.Platform;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 
 import static jnr.ffi.provider.jffi.CodegenUtils.sig;
 
 /**
- * Compilers method trampoline stubs for x86_64
+ * Compiles method trampoline stubs for AArch64
  */
 final class ARM_64StubCompiler extends AbstractA64StubCompiler {
 
+    /**
+     * Darwin packs stack arguments by their natural alignment instead of using 8 byte slots, so
+     * only methods whose arguments all fit in registers are compiled there.
+     */
+    static final boolean STACK_ARGS_SUPPORTED = Platform.getNativePlatform().getOS() != Platform.OS.DARWIN;
+
+    /**
+     * The assembler does not grow its 128 byte code buffer, so each stub must fit in it.  That leaves room
+     * to copy six stack arguments, e.g. 14 integer arguments alongside 8 floating point ones; larger
+     * signatures are left to the generic invoker.
+     */
+    static final int MAX_INSTRUCTIONS = 128 / 4;
+
     ARM_64StubCompiler(jnr.ffi.Runtime runtime) {
         super(runtime);
     }
@@ -99,8 +114,13 @@ final class ARM_64StubCompiler extends AbstractA64StubCompiler {
             }
         }
 
-        // We can only safely compile methods with up to 6 integer and 8 floating point parameters
-        return iCount <= 6 && fCount <= 8;
+        // Without stack argument support, we can only safely compile methods with up to 6 integer
+        // and 8 floating point parameters
+        if (!STACK_ARGS_SUPPORTED && (iCount > 6 || fCount > 8)) {
+            return false;
+        }
+
+        return maxInstructionCount(parameterTypes) <= MAX_INSTRUCTIONS;
     }
 
     static final Register[] srcRegisters32 = { Register.gpw(2), Register.gpw(3), Register.gpw(4), Register.gpw(5), Register.gpw(6), Register.gpw(7) };
@@ -114,11 +134,8 @@ final class ARM_64StubCompiler extends AbstractA64StubCompiler {
         Assembler_A64 a = new Assembler_A64(CPU_A64.A64);
         int iCount = iCount(parameterTypes);
         int fCount = fCount(parameterTypes);
+        int stackArgCount = stackArgCount(parameterTypes);
 
-        //usage of sp and imm() from Asm.java creates problems; better use Register.gpb(31) and Immediate.imm()
-        Pre_index pindex = new Pre_index(Register.gpb(31),Immediate.imm(-32));
-        a.stp(Register.gpb(29),Register.gpb(30),pindex);
-        a.mov(Register.gpb(29),Register.gpb(31));
         boolean canJumpToTarget = !saveErrno & iCount <= 6 & fCount <= 8;
         switch (resultType.getNativeType()) {
             case SINT:
@@ -147,61 +164,67 @@ final class ARM_64StubCompiler extends AbstractA64StubCompiler {
                 break;
         }
 
-        // JNI functions all look like:
-        // foo(JNIEnv* env, jobject self, arg...)
-        // on AARCH64, those sit in X0-X7/W0-W7
-        // So we need to shuffle all the integer args up to over-write the
-        // env and self arguments
-
-        for (int i = 0; i < Math.min(iCount, 6); i++) {
-            switch (parameterTypes[i].getNativeType()) {
-                case SCHAR:
-                    a.sxtb(srcRegisters64[i], srcRegisters32[i]);
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
-
-                case UCHAR:
-                    a.uxtb(srcRegisters64[i], srcRegisters32[i]);
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
-
-                case SSHORT:
-                    a.sxth(srcRegisters64[i], srcRegisters32[i]);
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
-
-                case USHORT:
-                    a.uxth(srcRegisters64[i], srcRegisters32[i]);
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
-
-                case SINT:
-                    a.sxtw(srcRegisters64[i], srcRegisters32[i]);
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
-
-                case UINT:
-                    a.uxtw(srcRegisters64[i], srcRegisters32[i]);
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
+        if (!STACK_ARGS_SUPPORTED && (iCount > 6 || fCount > 8)) {
+            throw new IllegalArgumentException("stack arguments not supported on " + Platform.getNativePlatform().getOS());
+        }
 
-                default:
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
+        // Outgoing stack arguments each take an 8 byte slot, and sp must stay 16 byte aligned
+        int space = align(stackArgCount * 8, 16);
+        if (!canJumpToTarget) {
+            //usage of sp and imm() from Asm.java creates problems; better use Register.gpb(31) and Immediate.imm()
+            Pre_index pindex = new Pre_index(Register.gpb(31),Immediate.imm(-32));
+            a.stp(Register.gpb(29),Register.gpb(30),pindex);
+            a.mov(Register.gpb(29),Register.gpb(31));
+            if (space > 0) {
+                // sub sp, sp, #space
+                emit(a, 0xD10003FF | (space << 10));
             }
         }
 
-        if (iCount > 6) {
-            throw new IllegalArgumentException("integer argument count > 6");
+        // JNI functions all look like:
+        // foo(JNIEnv* env, jobject self, arg...)
+        // on AARCH64, those sit in X0-X7/W0-W7, and any integer args past the 6th are on the stack.
+        // So we need to shuffle all the integer args up to over-write the env and self arguments,
+        // load the 7th and 8th from the stack into X6/X7, and copy everything else that does not fit
+        // in registers from the incoming stack arguments to the outgoing ones.
+        //
+        // The floating point args are already in V0-V7, and the ones past that are on the stack.
+        int iIndex = 0, fIndex = 0, srcStackIndex = 0;
+        for (ParameterType parameterType : parameterTypes) {
+            NativeType nativeType = parameterType.getNativeType();
+            if (isFloat(nativeType)) {
+                if (fIndex++ >= 8) {
+                    srcStackIndex++;
+                }
+
+            } else if (iIndex < 6) {
+                moveIntegerRegister(a, nativeType, iIndex++);
+
+            } else if (iIndex < 8) {
+                loadInteger(a, nativeType, iIndex++, incomingStackArg(srcStackIndex++));
+
+            } else {
+                iIndex++;
+                srcStackIndex++;
+            }
         }
 
-        // All the integer registers are loaded; there nothing to do for the floating
-        // registers, as the first 8 args are already in xmm0..xmm7, so just sanity check
-        if (fCount > 8) {
-            throw new IllegalArgumentException("float argument count > 8");
+        // The remaining stack arguments are copied as whole 8 byte slots, in pairs where they are adjacent.
+        // AAPCS64 leaves the bits of a slot above the argument unspecified, so no extension is needed.
+        int[] copies = stackCopies(parameterTypes);
+        for (int i = 0; i < copies.length; ) {
+            if (i + 1 < copies.length && copies[i + 1] == copies[i] + 1) {
+                // ldp x10, x11, [x29, #src]; stp x10, x11, [sp, #dst]
+                emit(a, 0xA9402FAA | ((incomingStackArg(copies[i]) / 8) << 15));
+                emit(a, 0xA9002FEA | (i << 15));
+                i += 2;
+            } else {
+                a.ldr(Register.gpb(10), new Offset(Register.gpb(29), Immediate.imm(incomingStackArg(copies[i]))));
+                a.str(Register.gpb(10), outgoingStackArg(i));
+                i += 1;
+            }
         }
 
-        Offset offset = new Offset(Register.gpb(29),Immediate.imm(16));
         long function_addr = function.getFunctionAddress();
         short funn_addr_chunks = (short) (function_addr & 0x000000000000ffff);
         Shift sh;
@@ -212,6 +235,14 @@ final class ARM_64StubCompiler extends AbstractA64StubCompiler {
             funn_addr_chunks = (short) ((function_addr >> (16*count)) & 0x000000000000ffff);
             a.movk(Register.gpb(9),Immediate.imm(funn_addr_chunks),sh);
         }
+
+        if (canJumpToTarget) {
+            // The native function returns straight to the JNI caller
+            a.br(Register.gpb(9));
+            stubs_A64.add(new Stub(name, sig(resultClass, parameterClasses), a));
+            return;
+        }
+
         a.blr(Register.gpb(9));
         if (saveErrno) {
             // Save the return on the stack
@@ -219,8 +250,15 @@ final class ARM_64StubCompiler extends AbstractA64StubCompiler {
                 case VOID:
                     // No need to save/reload return value registers
                     break;
+
+                case FLOAT:
+                case DOUBLE:
+                    // str d0, [x29, #16]
+                    emit(a, 0xFD000BA0);
+                    break;
+
                 default:
-                    a.str(dstRegisters64[0], offset);
+                    a.str(dstRegisters64[0], RESULT_SLOT);
                     break;
             }
 
@@ -240,32 +278,38 @@ final class ARM_64StubCompiler extends AbstractA64StubCompiler {
                     // No need to save/reload return value registers
                     break;
 
+                case FLOAT:
+                case DOUBLE:
+                    // ldr d0, [x29, #16]
+                    emit(a, 0xFD400BA0);
+                    break;
+
                 case SCHAR:
-                    a.ldrsb(dstRegisters64[0],offset);
+                    a.ldrsb(dstRegisters64[0],RESULT_SLOT);
                     break;
 
                 case UCHAR:
-                    a.ldrb(dstRegisters64[0],offset);
+                    a.ldrb(dstRegisters64[0],RESULT_SLOT);
                     break;
 
                 case SSHORT:
-                    a.ldrsh(dstRegisters64[0],offset);
+                    a.ldrsh(dstRegisters64[0],RESULT_SLOT);
                     break;
 
                 case USHORT:
-                    a.ldrh(dstRegisters64[0],offset);
+                    a.ldrh(dstRegisters64[0],RESULT_SLOT);
                     break;
 
                 case SINT:
-                    a.ldrsw(dstRegisters64[0],offset);
+                    a.ldrsw(dstRegisters64[0],RESULT_SLOT);
                     break;
 
                 case UINT:
-                    a.ldr(dstRegisters64[0],offset);
+                    loadWord(a, 0, 29, 16);
                     break;
 
                 default:
-                    a.ldr(dstRegisters64[0],offset);
+                    a.ldr(dstRegisters64[0],RESULT_SLOT);
                     break;
             }
         } else {
@@ -298,12 +342,152 @@ final class ARM_64StubCompiler extends AbstractA64StubCompiler {
             }
         }
 
+        if (space > 0) {
+            // add sp, sp, #space
+            emit(a, 0x910003FF | (space << 10));
+        }
         Post_index posindex = new Post_index(Register.gpb(31),Immediate.imm(32));
         a.ldp(Register.gpb(29),Register.gpb(30),posindex );
         a.ret((Register)null);
         stubs_A64.add(new Stub(name, sig(resultClass, parameterClasses), a));
     }
 
+    /** The spare slot in the stub's frame record, used to preserve the result across the errno call */
+    static final Offset RESULT_SLOT = new Offset(Register.gpb(29), Immediate.imm(16));
+
+    /** Incoming stack arguments start just above the 32 byte frame record pushed by the stub */
+    static int incomingStackArg(int index) {
+        return 32 + index * 8;
+    }
+
+    static Offset outgoingStackArg(int index) {
+        return new Offset(Register.gpb(31), Immediate.imm(index * 8));
+    }
+
+    static boolean isFloat(NativeType nativeType) {
+        return nativeType == NativeType.FLOAT || nativeType == NativeType.DOUBLE;
+    }
+
+    /** Sign/zero extends an integer argument into its native register in a single instruction */
+    static void moveIntegerRegister(Assembler_A64 a, NativeType nativeType, int i) {
+        switch (nativeType) {
+            case SCHAR:
+                a.sxtb(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            case UCHAR:
+                a.uxtb(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            case SSHORT:
+                a.sxth(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            case USHORT:
+                a.uxth(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            case SINT:
+                a.sxtw(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            case UINT:
+                a.uxtw(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            default:
+                a.mov(dstRegisters64[i], srcRegisters64[i]);
+                break;
+        }
+    }
+
+    /** Loads a sign/zero extended integer argument from a stack slot */
+    static void loadInteger(Assembler_A64 a, NativeType nativeType, int reg, int offset) {
+        Register dst = Register.gpb(reg);
+        Offset src = new Offset(Register.gpb(29), Immediate.imm(offset));
+        switch (nativeType) {
+            case SCHAR:
+                a.ldrsb(dst, src);
+                break;
+
+            case UCHAR:
+                a.ldrb(dst, src);
+                break;
+
+            case SSHORT:
+                a.ldrsh(dst, src);
+                break;
+
+            case USHORT:
+                a.ldrh(dst, src);
+                break;
+
+            case SINT:
+                a.ldrsw(dst, src);
+                break;
+
+            case UINT:
+                loadWord(a, reg, 29, offset);
+                break;
+
+            default:
+                a.ldr(dst, src);
+                break;
+        }
+    }
+
+    /**
+     * Emits ldr wt, [xn, #offset], which zero extends into the full register.  The assembler
+     * scales 32 bit load offsets as if they were 64 bit, so encode it directly.
+     */
+    static void loadWord(Assembler_A64 a, int rt, int rn, int offset) {
+        emit(a, 0xB9400000 | ((offset / 4) << 10) | (rn << 5) | rt);
+    }
+
+    /**
+     * The worst case number of instructions in a stub: the frame setup and teardown, two calls
+     * through absolute addresses, saving and restoring the result around the errno call, one
+     * instruction per register integer argument and two per pair of copied stack arguments.
+     */
+    static int maxInstructionCount(ParameterType[] parameterTypes) {
+        int[] copies = stackCopies(parameterTypes);
+        int copyCount = 0;
+        for (int i = 0; i < copies.length; ) {
+            i += i + 1 < copies.length && copies[i + 1] == copies[i] + 1 ? 2 : 1;
+            copyCount += 2;
+        }
+
+        return 18 + Math.min(iCount(parameterTypes), 8) + copyCount;
+    }
+
+    /**
+     * The incoming stack slots that are copied to the outgoing stack arguments, in order.  The incoming
+     * slots also hold the 7th and 8th integer arguments, which go to X6/X7 instead.
+     */
+    static int[] stackCopies(ParameterType[] parameterTypes) {
+        int[] copies = new int[stackArgCount(parameterTypes)];
+        int iIndex = 0, fIndex = 0, srcStackIndex = 0, count = 0;
+        for (ParameterType parameterType : parameterTypes) {
+            if (isFloat(parameterType.getNativeType())) {
+                if (fIndex++ >= 8) {
+                    copies[count++] = srcStackIndex++;
+                }
+            } else if (iIndex++ >= 6) {
+                if (iIndex > 8) {
+                    copies[count++] = srcStackIndex;
+                }
+                srcStackIndex++;
+            }
+        }
+
+        return copies;
+    }
+
+    /** The number of arguments the native function expects on the stack */
+    static int stackArgCount(ParameterType[] parameterTypes) {
+        return Math.max(0, iCount(parameterTypes) - 8) + Math.max(0, fCount(parameterTypes) - 8);
+    }
+
     static int fCount(ParameterType[] parameterTypes) {
         int fCount = 0;
 
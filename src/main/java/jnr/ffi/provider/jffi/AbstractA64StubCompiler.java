@@ -23,19 +23,19 @@ import com.kenai.jffi.NativeMethod;
 import com.kenai.jffi.NativeMethods;
 import com.kenai.jffi.PageManager;
 import jnr.a64asm.Assembler_A64;
+import jnr.a64asm.Register;
 import jnr.ffi.Platform;
 import jnr.ffi.Runtime;
+import jnr.ffi.util.ref.FinalizablePhantomReference;
 
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -55,9 +55,8 @@ abstract class AbstractA64StubCompiler extends StubCompiler {
     }
 
     private static final class StaticDataHolder {
-        // Keep a reference from the loaded class to the pages holding the code for that class.
-        static final Map<Class, PageHolder> PAGES
-                = Collections.synchronizedMap(new WeakHashMap<Class, PageHolder>());
+        // Keep the holders reachable until the class whose code they hold has been unloaded.
+        static final Map<PageHolder, Boolean> PAGES = new ConcurrentHashMap<PageHolder, Boolean>();
     }
     final List<Stub> stubs_A64 = new LinkedList<Stub>();
 
@@ -74,35 +73,31 @@ abstract class AbstractA64StubCompiler extends StubCompiler {
         }
     }
 
-    static final AtomicIntegerFieldUpdater<PageHolder> PAGE_HOLDER_UPDATER = AtomicIntegerFieldUpdater.newUpdater(PageHolder.class, "disposed");
-
-    static final class PageHolder {
+    /**
+     * Frees the pages holding the code for a class once the class has been unloaded.
+     */
+    static final class PageHolder extends FinalizablePhantomReference<Class> {
         final PageManager pm;
         final long memory;
         final long pageCount;
-        volatile int disposed;
 
-        public PageHolder(PageManager pm, long memory, long pageCount) {
+        public PageHolder(Class clazz, PageManager pm, long memory, long pageCount) {
+            super(clazz, NativeFinalizer.getInstance().getFinalizerQueue());
             this.pm = pm;
             this.memory = memory;
             this.pageCount = pageCount;
         }
 
-        @Override
-        protected void finalize() throws Throwable {
+        public void finalizeReferent() {
             try {
-                int disposed = PAGE_HOLDER_UPDATER.getAndSet(this, 1);
-                if (disposed == 0) {
-                    pm.freePages(memory, (int) pageCount);
-                }
+                pm.freePages(memory, (int) pageCount);
             } catch (Throwable t) {
                 Logger.getLogger(getClass().getName()).log(Level.WARNING,
                     "Exception when freeing native pages: %s", t.getLocalizedMessage());
             } finally {
-                super.finalize();
+                StaticDataHolder.PAGES.remove(this);
             }
         }
-
     }
 
     @Override
@@ -126,7 +121,7 @@ abstract class AbstractA64StubCompiler extends StubCompiler {
         if (code == 0) {
             throw new OutOfMemoryError("allocatePages failed for codeSize=" + codeSize);
         }
-        PageHolder page = new PageHolder(pm, code, npages);
+        StaticDataHolder.PAGES.put(new PageHolder(clazz, pm, code, npages), Boolean.TRUE);
 
         // Now relocate/copy all the assembler stubs into the real code area
         List<NativeMethod> methods = new ArrayList<NativeMethod>(stubs_A64.size());
@@ -168,7 +163,17 @@ abstract class AbstractA64StubCompiler extends StubCompiler {
         pm.protectPages(code, (int) npages, PageManager.PROT_READ | PageManager.PROT_EXEC);
 
         NativeMethods.register(clazz, methods);
-        StaticDataHolder.PAGES.put(clazz, page);
+    }
+
+    /**
+     * Emits a raw instruction word.  Used for the few encodings the assembler gets wrong, such as
+     * immediate arithmetic on SP and loads/stores of the floating point registers.
+     */
+    static void emit(Assembler_A64 a, int instruction) {
+        int offset = a.offset();
+        // Reserve a word with a no-op move, then overwrite it with the real instruction
+        a.mov(Register.gpb(9), Register.gpb(9));
+        a.setDWordAt(offset, instruction);
     }
 
     static int align(int offset, int align) {
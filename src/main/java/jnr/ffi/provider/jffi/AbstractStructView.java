@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.StructView;
+
+/**
+ * Base class of the struct views created by {@link StructViewGenerator}.
+ */
+abstract public class AbstractStructView implements StructView {
+    private final long extent;
+    private Pointer memory;
+    private long offset;
+
+    // The address of the current record; read by generated code
+    protected long address;
+
+    protected AbstractStructView(long extent) {
+        this.extent = extent;
+    }
+
+    public final void useMemory(Pointer memory, long offset) {
+        if (!memory.isDirect()) {
+            throw new IllegalArgumentException("struct views require direct memory");
+        }
+        if (offset < 0 || offset > memory.size() - extent) {
+            throw new IndexOutOfBoundsException("record of size " + extent + " at offset " + offset
+                    + " out of bounds for memory of size " + memory.size());
+        }
+
+        this.memory = memory;
+        this.offset = offset;
+        this.address = memory.address() + offset;
+    }
+
+    public final Pointer getMemory() {
+        return memory;
+    }
+
+    public final long getOffset() {
+        return offset;
+    }
+}
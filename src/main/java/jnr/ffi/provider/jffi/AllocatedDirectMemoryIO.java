@@ -19,19 +19,48 @@
 package jnr.ffi.provider.jffi;
 
 import jnr.ffi.Runtime;
+import jnr.ffi.util.ref.FinalizablePhantomReference;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Native memory allocated with malloc, freed by {@link #dispose()} or, failing that, after the
+ * memory object has been garbage collected.
+ *
+ * Setting the {@code jnr.ffi.leak-tracker.enabled} system property to {@code true} records where
+ * each block is allocated, and logs that site whenever a block is freed by the garbage collector
+ * instead of by {@link #dispose()}.
+ */
 class AllocatedDirectMemoryIO extends DirectMemoryIO {
-    private final AtomicBoolean allocated = new AtomicBoolean(true);
+    private static final boolean TRACK_LEAKS = Util.getBooleanProperty("jnr.ffi.leak-tracker.enabled", false);
+
+    /** Keeps the reclaimers reachable until the memory has been freed */
+    private static final Map<Reclaimer, Boolean> referenceSet = new ConcurrentHashMap<Reclaimer, Boolean>();
+
+    /** The number of blocks freed by the garbage collector instead of by {@link #dispose()} */
+    private static final AtomicLong collectedCount = new AtomicLong();
+
+    private final Reclaimer reclaimer;
     private final long size;
     
     public AllocatedDirectMemoryIO(Runtime runtime, long size, boolean clear) {
+        this(runtime, size, clear, TRACK_LEAKS);
+    }
+
+    AllocatedDirectMemoryIO(Runtime runtime, long size, boolean clear, boolean trackLeaks) {
         super(runtime, IO.allocateMemory(size, clear));
         this.size = size;
         if (address() == 0L) {
             throw new OutOfMemoryError("Failed to allocate " + size + " bytes");
         }
+        this.reclaimer = new Reclaimer(this, address(), size,
+                trackLeaks ? new Throwable("allocation site") : null);
+        referenceSet.put(reclaimer, Boolean.TRUE);
     }
 
     @Override
@@ -55,19 +84,54 @@ class AllocatedDirectMemoryIO extends DirectMemoryIO {
     }
 
     public final void dispose() {
-        if (allocated.getAndSet(false)) {
-            IO.freeMemory(address());
-        }
+        reclaimer.free();
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        try {
+    /** Gets the number of blocks that have been allocated but not yet freed */
+    static int getOutstandingCount() {
+        return referenceSet.size();
+    }
+
+    /** Gets the number of blocks freed by the garbage collector instead of by {@link #dispose()} */
+    static long getCollectedCount() {
+        return collectedCount.get();
+    }
+
+    private static final class Reclaimer extends FinalizablePhantomReference<AllocatedDirectMemoryIO> {
+        private final AtomicBoolean allocated = new AtomicBoolean(true);
+        private final long address;
+        private final long size;
+        private final Throwable allocationSite;
+
+        Reclaimer(AllocatedDirectMemoryIO memory, long address, long size, Throwable allocationSite) {
+            super(memory, NativeFinalizer.getInstance().getFinalizerQueue());
+            this.address = address;
+            this.size = size;
+            this.allocationSite = allocationSite;
+        }
+
+        boolean free() {
             if (allocated.getAndSet(false)) {
-                IO.freeMemory(address());
+                referenceSet.remove(this);
+                clear();
+                IO.freeMemory(address);
+                return true;
+            }
+
+            return false;
+        }
+
+        public void finalizeReferent() {
+            if (!free()) {
+                return;
+            }
+
+            collectedCount.incrementAndGet();
+            if (allocationSite != null) {
+                Logger.getLogger(AllocatedDirectMemoryIO.class.getName()).log(Level.WARNING,
+                        "native memory of " + size + " bytes was freed by the garbage collector instead of dispose()",
+                        allocationSite);
             }
-        } finally {
-            super.finalize();
         }
     }
 }
@@ -30,6 +30,10 @@ import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -122,20 +126,46 @@ public class AsmLibraryLoader extends LibraryLoader {
                 new FastNumericMethodGenerator(),
                 new BufferMethodGenerator()
         };
+
+        // Fixed-arity bindings of variadic functions (see @Variadic) get a specialized, non-boxing method for their
+        // declared shape.  The x86 stub compiler jumps straight to the native function without setting up the
+        // variadic register state, so only the generators that call through the jffi CallContext are used.
+        final MethodGenerator[] variadicGenerators = {
+                new FastIntMethodGenerator(),
+                new FastLongMethodGenerator(),
+                new FastNumericMethodGenerator(),
+                new BufferMethodGenerator()
+        };
         
         DefaultInvokerFactory invokerFactory = new DefaultInvokerFactory(runtime, library, typeMapper, functionMapper, libraryCallingConvention, libraryOptions, interfaceClass.isAnnotationPresent(Synchronized.class));
         InterfaceScanner scanner = new InterfaceScanner(interfaceClass, typeMapper, libraryCallingConvention);
 
+        // Map all the function and variable names up front, so their symbols are resolved in one pass
+        Map<NativeFunction, String> functions = new LinkedHashMap<>();
         for (NativeFunction function : scanner.functions()) {
+            functions.put(function, function.getMethod().isVarArgs() ? null
+                    : functionMapper.mapFunctionName(function.name(), new NativeFunctionMapperContext(library, function.annotations())));
+        }
+        Map<NativeVariable, String> variables = new LinkedHashMap<>();
+        for (NativeVariable v : scanner.variables()) {
+            variables.put(v, functionMapper.mapFunctionName(v.getMethod().getName(), null));
+        }
+        List<String> symbolNames = new ArrayList<>(functions.values());
+        symbolNames.addAll(variables.values());
+        symbolNames.removeAll(Collections.singleton(null));
+        library.resolveAll(symbolNames);
+
+        for (Map.Entry<NativeFunction, String> entry : functions.entrySet()) {
+            NativeFunction function = entry.getKey();
             Method method = function.getMethod();
 
-            if (method.isVarArgs() || method.isAnnotationPresent(Variadic.class)) {
+            if (method.isVarArgs()) {
                 ObjectField field = builder.getObjectField(invokerFactory.createInvoker(method), Invoker.class);
                 generateVarargsInvocation(builder, method, field);
                 continue;
             }
 
-            String functionName = functionMapper.mapFunctionName(function.name(), new NativeFunctionMapperContext(library, function.annotations()));
+            String functionName = entry.getValue();
 
             try {
                 long functionAddress = library.findSymbolAddress(functionName);
@@ -150,10 +180,12 @@ public class AsmLibraryLoader extends LibraryLoader {
 
                 boolean saveError = jnr.ffi.LibraryLoader.saveError(libraryOptions, function.hasSaveError(), function.hasIgnoreError());
 
-                Function jffiFunction = new Function(functionAddress, 
-                        getCallContext(resultType, parameterTypes,function.convention(), saveError));
+                Variadic variadic = method.getAnnotation(Variadic.class);
+                Function jffiFunction = new Function(functionAddress, variadic != null
+                        ? getCallContext(resultType, variadic.fixedCount(), parameterTypes, function.convention(), saveError)
+                        : getCallContext(resultType, parameterTypes,function.convention(), saveError));
 
-                for (MethodGenerator g : generators) {
+                for (MethodGenerator g : variadic != null ? variadicGenerators : generators) {
                     if (g.isSupported(resultType, parameterTypes, function.convention())) {
                         g.generate(builder, method.getName(), jffiFunction, resultType, parameterTypes, !saveError);
                         break;
@@ -170,13 +202,13 @@ public class AsmLibraryLoader extends LibraryLoader {
 
         // generate global variable accessors
         VariableAccessorGenerator variableAccessorGenerator = new VariableAccessorGenerator(runtime);
-        for (NativeVariable v : scanner.variables()) {
-            Method m = v.getMethod();
+        for (Map.Entry<NativeVariable, String> entry : variables.entrySet()) {
+            Method m = entry.getKey().getMethod();
             java.lang.reflect.Type variableType = ((ParameterizedType) m.getGenericReturnType()).getActualTypeArguments()[0];
             if (!(variableType instanceof Class)) {
                 throw new IllegalArgumentException("unsupported variable class: " + variableType);
             }
-            String functionName = functionMapper.mapFunctionName(m.getName(), null);
+            String functionName = entry.getValue();
             try {
                 variableAccessorGenerator.generate(builder, interfaceClass, m.getName(),
                         library.findSymbolAddress(functionName), (Class) variableType, sortedAnnotationCollection(m.getAnnotations()),
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2008-2010 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.nio.charset.Charset;
+
+/**
+ * Direct memory of a known size, which checks each access against that size.
+ *
+ * This does in one object what wrapping a {@link DirectMemoryIO} in a {@link jnr.ffi.provider.BoundedMemoryIO}
+ * does in two, with one bounds check per access instead of one per level of delegation.
+ */
+class BoundedDirectMemoryIO extends DirectMemoryIO {
+    private final long size;
+    /** Keeps whatever owns the native memory reachable for as long as this pointer is */
+    private final Object owner;
+
+    BoundedDirectMemoryIO(Runtime runtime, long address, long size, Object owner) {
+        super(runtime, address);
+        this.size = size;
+        this.owner = owner;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void checkBounds(long offset, long length) {
+        checkBounds(size, offset, length);
+    }
+
+    @Override
+    public byte getByte(long offset) {
+        checkBounds(size, offset, 1);
+        return IO.getByte(address() + offset);
+    }
+
+    @Override
+    public short getShort(long offset) {
+        checkBounds(size, offset, 2);
+        return IO.getShort(address() + offset);
+    }
+
+    @Override
+    public int getInt(long offset) {
+        checkBounds(size, offset, 4);
+        return IO.getInt(address() + offset);
+    }
+
+    @Override
+    public long getLongLong(long offset) {
+        checkBounds(size, offset, 8);
+        return IO.getLong(address() + offset);
+    }
+
+    @Override
+    public float getFloat(long offset) {
+        checkBounds(size, offset, 4);
+        return IO.getFloat(address() + offset);
+    }
+
+    @Override
+    public double getDouble(long offset) {
+        checkBounds(size, offset, 8);
+        return IO.getDouble(address() + offset);
+    }
+
+    @Override
+    public void putByte(long offset, byte value) {
+        checkBounds(size, offset, 1);
+        IO.putByte(address() + offset, value);
+    }
+
+    @Override
+    public void putShort(long offset, short value) {
+        checkBounds(size, offset, 2);
+        IO.putShort(address() + offset, value);
+    }
+
+    @Override
+    public void putInt(long offset, int value) {
+        checkBounds(size, offset, 4);
+        IO.putInt(address() + offset, value);
+    }
+
+    @Override
+    public void putLongLong(long offset, long value) {
+        checkBounds(size, offset, 8);
+        IO.putLong(address() + offset, value);
+    }
+
+    @Override
+    public void putFloat(long offset, float value) {
+        checkBounds(size, offset, 4);
+        IO.putFloat(address() + offset, value);
+    }
+
+    @Override
+    public void putDouble(long offset, double value) {
+        checkBounds(size, offset, 8);
+        IO.putDouble(address() + offset, value);
+    }
+
+    @Override
+    public void get(long offset, byte[] dst, int off, int len) {
+        checkBounds(size, offset, len);
+        IO.getByteArray(address() + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, byte[] src, int off, int len) {
+        checkBounds(size, offset, len);
+        IO.putByteArray(address() + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, short[] dst, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Short.SIZE / 8));
+        IO.getShortArray(address() + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, short[] src, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Short.SIZE / 8));
+        IO.putShortArray(address() + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, int[] dst, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Integer.SIZE / 8));
+        IO.getIntArray(address() + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, int[] src, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Integer.SIZE / 8));
+        IO.putIntArray(address() + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, long[] dst, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Long.SIZE / 8));
+        IO.getLongArray(address() + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, long[] src, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Long.SIZE / 8));
+        IO.putLongArray(address() + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, float[] dst, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Float.SIZE / 8));
+        IO.getFloatArray(address() + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, float[] src, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Float.SIZE / 8));
+        IO.putFloatArray(address() + offset, src, off, len);
+    }
+
+    @Override
+    public void get(long offset, double[] dst, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Double.SIZE / 8));
+        IO.getDoubleArray(address() + offset, dst, off, len);
+    }
+
+    @Override
+    public void put(long offset, double[] src, int off, int len) {
+        checkBounds(size, offset, Math.multiplyExact(len, Double.SIZE / 8));
+        IO.putDoubleArray(address() + offset, src, off, len);
+    }
+
+    @Override
+    public Pointer getPointer(long offset) {
+        checkBounds(size, offset, getRuntime().addressSize());
+        return super.getPointer(offset);
+    }
+
+    @Override
+    public Pointer getPointer(long offset, long size) {
+        checkBounds(this.size, offset, getRuntime().addressSize());
+        return super.getPointer(offset, size);
+    }
+
+    @Override
+    public void putPointer(long offset, Pointer value) {
+        checkBounds(size, offset, getRuntime().addressSize());
+        super.putPointer(offset, value);
+    }
+
+    @Override
+    public String getString(long offset) {
+        checkBounds(size, offset, 0);
+        return super.getString(offset, (int) Math.min(size - offset, Integer.MAX_VALUE), Charset.defaultCharset());
+    }
+
+    @Override
+    public String getString(long offset, int maxLength, Charset cs) {
+        checkBounds(size, offset, maxLength);
+        return super.getString(offset, maxLength, cs);
+    }
+
+    @Override
+    public void putString(long offset, String string, int maxLength, Charset cs) {
+        checkBounds(size, offset, maxLength);
+        super.putString(offset, string, maxLength, cs);
+    }
+
+    @Override
+    public void putZeroTerminatedByteArray(long offset, byte[] src, int off, int len) {
+        checkBounds(size, offset, len + 1L);
+        super.putZeroTerminatedByteArray(offset, src, off, len);
+    }
+
+    @Override
+    public int indexOf(long offset, byte value) {
+        checkBounds(size, offset, 0);
+        return super.indexOf(offset, value, (int) Math.min(size - offset, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public int indexOf(long offset, byte value, int maxlen) {
+        checkBounds(size, offset, maxlen);
+        return super.indexOf(offset, value, maxlen);
+    }
+
+    @Override
+    public void setMemory(long offset, long size, byte value) {
+        checkBounds(this.size, offset, size);
+        IO.setMemory(address() + offset, size, value);
+    }
+
+    @Override
+    public void transferTo(long offset, Pointer other, long otherOffset, long count) {
+        checkBounds(size, offset, count);
+        super.transferTo(offset, other, otherOffset, count);
+    }
+
+    @Override
+    public void transferFrom(long offset, Pointer other, long otherOffset, long count) {
+        checkBounds(size, offset, count);
+        super.transferFrom(offset, other, otherOffset, count);
+    }
+}
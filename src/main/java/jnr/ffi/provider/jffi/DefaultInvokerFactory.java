@@ -305,10 +305,13 @@ final class DefaultInvokerFactory {
         private final FunctionInvoker functionInvoker;
         private final SignatureTypeMapper typeMapper;
         private final ParameterType[] fixedParameterTypes;
+        private final Marshaller[] fixedMarshallers;
         private final long functionAddress;
         private final SigType resultType;
         private final boolean requiresErrno;
         private final CallingConvention callingConvention;
+        private final VariadicSignatureCache<VariadicSignature> signatureCache
+                = new VariadicSignatureCache<VariadicSignature>(VariadicSignatureCache.SIZE);
 
         VariadicInvoker(Runtime runtime,
                 FunctionInvoker functionInvoker, SignatureTypeMapper typeMapper,
@@ -324,19 +327,57 @@ final class DefaultInvokerFactory {
             this.resultType = resultType;
             this.requiresErrno = requiresErrno;
             this.callingConvention = callingConvention;
+            this.fixedMarshallers = new Marshaller[fixedParameterTypes.length - 1];
+            for (int i = 0; i < fixedMarshallers.length; ++i) {
+                fixedMarshallers[i] = getMarshaller(fixedParameterTypes[i]);
+            }
         }
 
         public final Object invoke(Object self, Object[] parameters) {
             Object[] varParam = (Object[])parameters[parameters.length - 1];
+            VariadicSignatureCache.Shape shape = VariadicSignatureCache.shapeOf(varParam);
+            VariadicSignature signature = signatureCache.get(shape);
+            if (signature == null) {
+                signature = newSignature(varParam);
+                signatureCache.put(shape, signature);
+            }
+
+            Function function = signature.function;
+            Marshaller[] variadicMarshallers = signature.variadicMarshallers;
+            HeapInvocationBuffer buffer = new HeapInvocationBuffer(function.getCallContext());
+
+            SessionPool pool = SessionPool.get();
+            InvocationSession session = pool.acquire();
+            try {
+                for (int i = 0; i < fixedMarshallers.length; ++i) {
+                    fixedMarshallers[i].marshal(session, buffer, parameters[i]);
+                }
+
+                int variableArgsCount = 0;
+                for (Object arg : varParam) {
+                    if (!VariadicSignatureCache.isAnnotationClass(arg)) {
+                        variadicMarshallers[variableArgsCount++].marshal(session, buffer, arg);
+                    }
+                }
+
+                // trailing NULL, see newSignature()
+                variadicMarshallers[variableArgsCount].marshal(session, buffer, null);
+
+                return functionInvoker.invoke(runtime, function, buffer);
+            } finally {
+                pool.release(session);
+            }
+        }
+
+        private VariadicSignature newSignature(Object[] varParam) {
             ParameterType[] argTypes = new ParameterType[fixedParameterTypes.length + varParam.length];
             System.arraycopy(fixedParameterTypes, 0, argTypes, 0, fixedParameterTypes.length - 1);
 
-            Object[] variableArgs = new Object[varParam.length + 1];
             int variableArgsCount = 0;
             List<Class<? extends Annotation>> paramAnnotations = new ArrayList<Class<? extends Annotation>>();
 
             for (Object arg : varParam) {
-                if (arg instanceof Class && Annotation.class.isAssignableFrom((Class)arg)) {
+                if (VariadicSignatureCache.isAnnotationClass(arg)) {
                     paramAnnotations.add((Class)arg);
                 } else {
                     Class<?> argClass;
@@ -349,10 +390,8 @@ final class DefaultInvokerFactory {
                         ToNativeType toNativeType = typeMapper.getToNativeType(DefaultSignatureType.create(arg.getClass(), toNativeContext), toNativeContext);
                         toNativeConverter = toNativeType == null ? null : toNativeType.getToNativeConverter();
                         argClass = toNativeConverter == null ? arg.getClass() : toNativeConverter.nativeType();
-                        variableArgs[variableArgsCount] = arg;
                     } else {
                         argClass = Pointer.class;
-                        variableArgs[variableArgsCount] = arg;
                     }
 
                     argTypes[fixedParameterTypes.length + variableArgsCount - 1] = new ParameterType(
@@ -374,7 +413,7 @@ final class DefaultInvokerFactory {
             // setup of the call when invoking a variadic function, which does not need the trailing null. However, for
             // platforms where we have not rebuilt the jffi stub we still set up this trailing NULL to be compatible
             // with ffi_prep_cif and the common va_arg layout. Once all platforms have been rebuilt to use
-            // ffi_prep_cif_var, this NULL and the +1 on variableArgs allocation above can be removed.
+            // ffi_prep_cif_var, this NULL and the +1 on variadicMarshallers allocation below can be removed.
 
             argTypes[fixedParameterTypes.length + variableArgsCount - 1] = new ParameterType(
                     Pointer.class, 
@@ -382,29 +421,19 @@ final class DefaultInvokerFactory {
                     Collections.<Annotation>emptyList(), 
                     null, 
                     new SimpleNativeContext(runtime, Collections.<Annotation>emptyList()));
-            variableArgs[variableArgsCount] = null;
             variableArgsCount++;
 
             int fixedParamCount = fixedParameterTypes.length - 1;
             int totalArgsCount = variableArgsCount + fixedParamCount;
             Function function = new Function(functionAddress,
                     getCallContext(resultType, fixedParamCount, argTypes, totalArgsCount, callingConvention, requiresErrno));
-            HeapInvocationBuffer buffer = new HeapInvocationBuffer(function.getCallContext());
-
-            InvocationSession session = new InvocationSession();
-            try {
-                if (parameters != null) for (int i = 0; i < parameters.length - 1; ++i) {
-                    getMarshaller(argTypes[i]).marshal(session, buffer, parameters[i]);
-                }
-                
-                for (int i = 0; i < variableArgsCount; ++i) {
-                    getMarshaller(argTypes[i + fixedParamCount]).marshal(session, buffer, variableArgs[i]);
-                }
 
-                return functionInvoker.invoke(runtime, function, buffer);
-            } finally {
-                session.finish();
+            Marshaller[] variadicMarshallers = new Marshaller[variableArgsCount];
+            for (int i = 0; i < variableArgsCount; ++i) {
+                variadicMarshallers[i] = getMarshaller(argTypes[i + fixedParamCount]);
             }
+
+            return new VariadicSignature(function, variadicMarshallers);
         }
         
         private static Collection<Annotation> getAnnotations(Collection<Class<? extends Annotation>> klasses) {
@@ -426,12 +455,26 @@ final class DefaultInvokerFactory {
         }
     }
 
+    /**
+     * The prepared call for one shape of variadic arguments
+     */
+    static final class VariadicSignature {
+        final Function function;
+        final Marshaller[] variadicMarshallers;
+
+        VariadicSignature(Function function, Marshaller[] variadicMarshallers) {
+            this.function = function;
+            this.variadicMarshallers = variadicMarshallers;
+        }
+    }
+
     static class DefaultInvoker implements jnr.ffi.provider.Invoker {
         protected final jnr.ffi.Runtime runtime;
         final Function function;
         final FunctionInvoker functionInvoker;
         final Marshaller[] marshallers;
         final NativeLibrary nativeLibrary;
+        private final boolean sessionRequired;
 
         DefaultInvoker(jnr.ffi.Runtime runtime, NativeLibrary nativeLibrary, Function function, FunctionInvoker invoker, Marshaller[] marshallers) {
             this.runtime = runtime;
@@ -439,11 +482,21 @@ final class DefaultInvokerFactory {
             this.function = function;
             this.functionInvoker = invoker;
             this.marshallers = marshallers;
+            this.sessionRequired = isSessionRequired(marshallers);
         }
 
         public final Object invoke(Object self, Object[] parameters) {
-            InvocationSession session = new InvocationSession();
             HeapInvocationBuffer buffer = new HeapInvocationBuffer(function.getCallContext());
+            if (!sessionRequired) {
+                if (parameters != null) for (int i = 0; i < parameters.length; ++i) {
+                    marshallers[i].marshal(null, buffer, parameters[i]);
+                }
+
+                return functionInvoker.invoke(runtime, function, buffer);
+            }
+
+            SessionPool pool = SessionPool.get();
+            InvocationSession session = pool.acquire();
             try {
                 if (parameters != null) for (int i = 0; i < parameters.length; ++i) {
                     marshallers[i].marshal(session, buffer, parameters[i]);
@@ -451,7 +504,7 @@ final class DefaultInvokerFactory {
 
                 return functionInvoker.invoke(runtime, function, buffer);
             } finally {
-                session.finish();
+                pool.release(session);
             }
         }
     }
@@ -485,6 +538,69 @@ final class DefaultInvokerFactory {
         }
     }
 
+    /**
+     * Per-thread stack of reusable invocation sessions.  Each nested invocation on the same thread (e.g. a native
+     * call made from inside a callback) gets its own session, so reentrant calls never share one.
+     */
+    static final class SessionPool {
+        private static final ThreadLocal<SessionPool> pools = new ThreadLocal<SessionPool>() {
+            @Override
+            protected SessionPool initialValue() {
+                return new SessionPool();
+            }
+        };
+
+        private InvocationSession[] sessions = new InvocationSession[4];
+        private int depth;
+
+        static SessionPool get() {
+            return pools.get();
+        }
+
+        InvocationSession acquire() {
+            if (depth == sessions.length) {
+                InvocationSession[] tmp = new InvocationSession[sessions.length * 2];
+                System.arraycopy(sessions, 0, tmp, 0, sessions.length);
+                sessions = tmp;
+            }
+
+            InvocationSession session = sessions[depth];
+            if (session == null) {
+                sessions[depth] = session = new InvocationSession();
+            }
+            depth++;
+
+            return session;
+        }
+
+        void release(InvocationSession session) {
+            try {
+                session.finish();
+            } finally {
+                depth--;
+            }
+        }
+
+        /** The number of sessions currently in use on this thread */
+        int depth() {
+            return depth;
+        }
+    }
+
+    /**
+     * Only marshallers that apply a {@link ToNativeConverter} make use of the invocation session; calls where no
+     * parameter needs one are marshalled with a null session.
+     */
+    static boolean isSessionRequired(Marshaller[] marshallers) {
+        for (Marshaller marshaller : marshallers) {
+            if (marshaller instanceof ToNativeConverterMarshaller) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     static interface Marshaller {
         public abstract void marshal(InvocationSession session, HeapInvocationBuffer buffer, Object parameter);
     }
@@ -72,99 +72,99 @@ class DirectMemoryIO extends AbstractMemoryIO {
     }
 
 
-    public final byte getByte(long offset) {
+    public byte getByte(long offset) {
         return IO.getByte(address() + offset);
     }
 
-    public final short getShort(long offset) {
+    public short getShort(long offset) {
         return IO.getShort(address() + offset);
     }
 
-    public final int getInt(long offset) {
+    public int getInt(long offset) {
         return IO.getInt(address() + offset);
     }
 
-    public final long getLongLong(long offset) {
+    public long getLongLong(long offset) {
         return IO.getLong(address() + offset);
     }
 
-    public final float getFloat(long offset) {
+    public float getFloat(long offset) {
         return IO.getFloat(address() + offset);
     }
 
-    public final double getDouble(long offset) {
+    public double getDouble(long offset) {
         return IO.getDouble(address() + offset);
     }
 
-    public final void putByte(long offset, byte value) {
+    public void putByte(long offset, byte value) {
         IO.putByte(address() + offset, value);
     }
 
-    public final void putShort(long offset, short value) {
+    public void putShort(long offset, short value) {
         IO.putShort(address() + offset, value);
     }
 
-    public final void putInt(long offset, int value) {
+    public void putInt(long offset, int value) {
         IO.putInt(address() + offset, value);
     }
     
-    public final void putLongLong(long offset, long value) {
+    public void putLongLong(long offset, long value) {
         IO.putLong(address() + offset, value);
     }
 
-    public final void putFloat(long offset, float value) {
+    public void putFloat(long offset, float value) {
         IO.putFloat(address() + offset, value);
     }
 
-    public final void putDouble(long offset, double value) {
+    public void putDouble(long offset, double value) {
         IO.putDouble(address() + offset, value);
     }
 
-    public final void get(long offset, byte[] dst, int off, int len) {
+    public void get(long offset, byte[] dst, int off, int len) {
         IO.getByteArray(address() + offset, dst, off, len);
     }
 
-    public final void put(long offset, byte[] src, int off, int len) {
+    public void put(long offset, byte[] src, int off, int len) {
         IO.putByteArray(address() + offset, src, off, len);
     }
 
-    public final void get(long offset, short[] dst, int off, int len) {
+    public void get(long offset, short[] dst, int off, int len) {
         IO.getShortArray(address() + offset, dst, off, len);
     }
 
-    public final void put(long offset, short[] src, int off, int len) {
+    public void put(long offset, short[] src, int off, int len) {
         IO.putShortArray(address() + offset, src, off, len);
     }
 
-    public final void get(long offset, int[] dst, int off, int len) {
+    public void get(long offset, int[] dst, int off, int len) {
         IO.getIntArray(address() + offset, dst, off, len);
     }
 
-    public final void put(long offset, int[] src, int off, int len) {
+    public void put(long offset, int[] src, int off, int len) {
         IO.putIntArray(address() + offset, src, off, len);
     }
 
-    public final void get(long offset, long[] dst, int off, int len) {
+    public void get(long offset, long[] dst, int off, int len) {
         IO.getLongArray(address() + offset, dst, off, len);
     }
 
-    public final void put(long offset, long[] src, int off, int len) {
+    public void put(long offset, long[] src, int off, int len) {
         IO.putLongArray(address() + offset, src, off, len);
     }
 
-    public final void get(long offset, float[] dst, int off, int len) {
+    public void get(long offset, float[] dst, int off, int len) {
         IO.getFloatArray(address() + offset, dst, off, len);
     }
 
-    public final void put(long offset, float[] src, int off, int len) {
+    public void put(long offset, float[] src, int off, int len) {
         IO.putFloatArray(address() + offset, src, off, len);
     }
 
-    public final void get(long offset, double[] dst, int off, int len) {
+    public void get(long offset, double[] dst, int off, int len) {
         IO.getDoubleArray(address() + offset, dst, off, len);
     }
 
-    public final void put(long offset, double[] src, int off, int len) {
+    public void put(long offset, double[] src, int off, int len) {
         IO.putDoubleArray(address() + offset, src, off, len);
     }
 
@@ -181,13 +181,13 @@ class DirectMemoryIO extends AbstractMemoryIO {
     }
 
     public String getString(long offset) {
-        return Charset.defaultCharset().decode(ByteBuffer.wrap(IO.getZeroTerminatedByteArray(address() + offset))).toString();
+        return new String(IO.getZeroTerminatedByteArray(address() + offset), Charset.defaultCharset());
     }
 
 
     public String getString(long offset, int maxLength, Charset cs) {
-        final byte[] bytes = IO.getZeroTerminatedByteArray(address() + offset, maxLength);
-        return cs.decode(ByteBuffer.wrap(bytes)).toString();
+        // Decode straight into the String, rather than via a CharBuffer
+        return new String(IO.getZeroTerminatedByteArray(address() + offset, maxLength), cs);
     }
 
     public void putString(long offset, String string, int maxLength, Charset cs) {
@@ -205,7 +205,7 @@ class DirectMemoryIO extends AbstractMemoryIO {
         return (int) IO.indexOf(address() + offset, value, maxlen);
     }
 
-    public final void setMemory(long offset, long size, byte value) {
+    public void setMemory(long offset, long size, byte value) {
         IO.setMemory(this.address() + offset, size, value);
     }
 
@@ -21,6 +21,7 @@ package jnr.ffi.provider.jffi;
 import jnr.ffi.NativeLong;
 import jnr.ffi.Pointer;
 import jnr.ffi.Struct;
+import jnr.ffi.StructArray;
 import jnr.ffi.annotations.Delegate;
 import jnr.ffi.byref.ByReference;
 import jnr.ffi.mapper.AbstractSignatureTypeMapper;
@@ -57,6 +58,7 @@ import jnr.ffi.provider.converters.Pointer64ArrayParameterConverter;
 import jnr.ffi.provider.converters.StringBufferParameterConverter;
 import jnr.ffi.provider.converters.StringBuilderParameterConverter;
 import jnr.ffi.provider.converters.StringResultConverter;
+import jnr.ffi.provider.converters.StructArrayConverter;
 import jnr.ffi.provider.converters.StructArrayParameterConverter;
 import jnr.ffi.provider.converters.StructByReferenceToNativeConverter;
 
@@ -85,6 +87,9 @@ final class InvokerTypeMapper extends AbstractSignatureTypeMapper implements Sig
         } else if (Struct.class.isAssignableFrom(signatureType.getDeclaredType())) {
             return structResultConverterFactory.get(signatureType.getDeclaredType().asSubclass(Struct.class), fromNativeContext);
 
+        } else if (StructArray.class == signatureType.getDeclaredType()) {
+            return StructArrayConverter.getFromNativeConverter(signatureType, fromNativeContext);
+
         } else if (closureManager != null && isDelegate(signatureType.getDeclaredType())) {
             return ClosureFromNativeConverter.getInstance(fromNativeContext.getRuntime(), signatureType, classLoader, this);
 
@@ -122,6 +127,9 @@ final class InvokerTypeMapper extends AbstractSignatureTypeMapper implements Sig
         } else if (Struct.class.isAssignableFrom(javaType)) {
             return StructByReferenceToNativeConverter.getInstance(context);
 
+        } else if (StructArray.class.isAssignableFrom(javaType)) {
+            return StructArrayConverter.getToNativeConverter(signatureType, context);
+
         } else if (NativeLong.class.isAssignableFrom(javaType)) {
             return NativeLongConverter.getInstance();
 
@@ -25,15 +25,20 @@ import com.kenai.jffi.ClosureManager;
 import jnr.ffi.Pointer;
 import jnr.ffi.annotations.Delegate;
 import jnr.ffi.mapper.SignatureTypeMapper;
+import jnr.ffi.provider.ClosureOccupancy;
+import jnr.ffi.provider.PinnedClosure;
 import jnr.ffi.provider.FromNativeType;
 import jnr.ffi.provider.ToNativeType;
 import jnr.ffi.util.ref.FinalizableWeakReference;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static jnr.ffi.provider.jffi.ClosureUtil.getParameterType;
 import static jnr.ffi.provider.jffi.ClosureUtil.getResultType;
@@ -45,11 +50,19 @@ import static jnr.ffi.provider.jffi.InvokerUtil.getNativeCallingConvention;
  */
 public final class NativeClosureFactory<T> {
     private final jnr.ffi.Runtime runtime;
-    private final ConcurrentMap<Integer, ClosureReference> closures = new ConcurrentHashMap<Integer, ClosureReference>();
+    /** Closures keyed by the identity hash code of the callable; the arrays are copied on write */
+    private final ConcurrentMap<Integer, ClosureReference[]> closures = new ConcurrentHashMap<Integer, ClosureReference[]>();
     private final CallContext callContext;
     private final NativeClosureProxy.Factory closureProxyFactory;
+    /*
+     * jffi cannot free a single closure out of a magazine, so every pointer that is recycled is kept for reuse;
+     * the queue is bounded by the most closures this factory has ever had alive at once.  Pointers are recycled
+     * on the finalizer thread, so they are only ever kept here, where any thread can reuse them.
+     */
     private final ConcurrentLinkedQueue<NativeClosurePointer> freeQueue = new ConcurrentLinkedQueue<NativeClosurePointer>();
     private ClosureMagazine currentMagazine;
+    private final AtomicLong allocatedCount = new AtomicLong();
+    private final AtomicLong inUseCount = new AtomicLong();
 
 
     protected NativeClosureFactory(jnr.ffi.Runtime runtime, CallContext callContext,
@@ -86,43 +99,61 @@ public final class NativeClosureFactory<T> {
     }
 
     private void expunge(ClosureReference ref, Integer key) {
-        // Fast case - no chained elements; can just remove from the hash map
-        if (ref.next == null && closures.remove(key, ref)) {
-            return;
-        }
-
-        // Remove from chained list
-        synchronized (closures) {
-            for (ClosureReference clref = closures.get(key), prev = clref; clref != null; prev = clref, clref = clref.next) {
-                if (clref == ref) {
-                    if (prev != clref) {
-                        // if not first element in list, just remove this one
-                        prev.next = clref.next;
-
-                    } else {
-                        // first element in list, replace with the next if non-null, else remove from map
-                        if (clref.next != null) {
-                            closures.replace(key, clref, clref.next);
-                        } else {
-                            closures.remove(key, clref);
-                        }
-                    }
+        for (;;) {
+            ClosureReference[] refs = closures.get(key);
+            int index = refs != null ? indexOf(refs, ref) : -1;
+            if (index < 0) {
+                return;
+            }
+
+            if (refs.length == 1) {
+                if (closures.remove(key, refs)) {
+                    break;
+                }
+            } else {
+                ClosureReference[] remaining = new ClosureReference[refs.length - 1];
+                System.arraycopy(refs, 0, remaining, 0, index);
+                System.arraycopy(refs, index + 1, remaining, index, remaining.length - index);
+                if (closures.replace(key, refs, remaining)) {
                     break;
                 }
             }
         }
+
+        inUseCount.decrementAndGet();
+    }
+
+    private static int indexOf(ClosureReference[] refs, ClosureReference ref) {
+        for (int i = 0; i < refs.length; i++) {
+            if (refs[i] == ref) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static ClosureReference find(ClosureReference[] refs, Object callable) {
+        if (refs != null) {
+            for (ClosureReference ref : refs) {
+                if (ref.getCallable() == callable) {
+                    return ref;
+                }
+            }
+        }
+
+        return null;
     }
 
     private void recycle(NativeClosurePointer ptr) {
         freeQueue.add(ptr);
     }
 
-    final class ClosureReference extends FinalizableWeakReference<Object> {
-        volatile ClosureReference next;
+    static final class ClosureReference extends FinalizableWeakReference<Object> {
         private final NativeClosureFactory factory;
         private final NativeClosurePointer pointer;
         private final Integer key;
-
+        private int pinCount;
 
         private ClosureReference(Object referent, Integer key, NativeClosureFactory factory,
                                  NativeClosurePointer pointer) {
@@ -145,27 +176,98 @@ public final class NativeClosureFactory<T> {
         Pointer getPointer() {
             return pointer;
         }
+
+        synchronized void pin(Object callable) {
+            if (pinCount++ == 0) {
+                pointer.proxy.pinnedCallable = callable;
+            }
+        }
+
+        synchronized void unpin() {
+            if (--pinCount == 0) {
+                pointer.proxy.pinnedCallable = null;
+            }
+        }
+    }
+
+    /**
+     * Keeps a closure's callable strongly reachable, and lets upcalls skip the weak reference, until closed.
+     */
+    static final class Pin<T> implements PinnedClosure<T> {
+        private final AtomicBoolean pinned = new AtomicBoolean(true);
+        private final ClosureReference ref;
+        private final T callable;
+
+        Pin(ClosureReference ref, T callable) {
+            this.ref = ref;
+            this.callable = callable;
+            ref.pin(callable);
+        }
+
+        public Pointer getPointer() {
+            return ref.getPointer();
+        }
+
+        public T getCallable() {
+            return callable;
+        }
+
+        public void close() {
+            if (pinned.getAndSet(false)) {
+                ref.unpin();
+            }
+        }
     }
 
     NativeClosurePointer allocateClosurePointer() {
+        // Recycled and pre-allocated pointers are taken without locking; only a new closure needs the magazine
         NativeClosurePointer closurePointer = freeQueue.poll();
-        if (closurePointer != null) {
-            return closurePointer;
-        }
 
-        NativeClosureProxy proxy = closureProxyFactory.newClosureProxy();
-        Closure.Handle closureHandle = null;
+        return closurePointer != null ? closurePointer : allocateClosurePointers(1)[0];
+    }
+
+    private NativeClosurePointer[] allocateClosurePointers(int count) {
+        NativeClosureProxy[] proxies = new NativeClosureProxy[count];
+        Closure.Handle[] handles = new Closure.Handle[count];
+        for (int i = 0; i < proxies.length; i++) {
+            proxies[i] = closureProxyFactory.newClosureProxy();
+        }
 
         synchronized (this) {
-            do {
-                if (currentMagazine == null || ((closureHandle = currentMagazine.allocate(proxy)) == null)) {
+            for (int i = 0; i < handles.length; i++) {
+                while (currentMagazine == null || ((handles[i] = currentMagazine.allocate(proxies[i])) == null)) {
                     currentMagazine = ClosureManager.getInstance().newClosureMagazine(callContext,
                             closureProxyFactory.getInvokeMethod());
                 }
-            } while (closureHandle == null);
+            }
+        }
+        allocatedCount.addAndGet(count);
+
+        NativeClosurePointer[] pointers = new NativeClosurePointer[count];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = new NativeClosurePointer(runtime, handles[i], proxies[i]);
+        }
+
+        return pointers;
+    }
+
+    /**
+     * Allocates native closures ahead of use, and makes them available to any thread.
+     *
+     * @param count the number of closures to allocate.
+     */
+    void preallocate(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count: " + count);
+        }
+
+        for (NativeClosurePointer ptr : allocateClosurePointers(count)) {
+            freeQueue.add(ptr);
         }
+    }
 
-        return new NativeClosurePointer(runtime, closureHandle, proxy);
+    ClosureOccupancy getOccupancy() {
+        return new ClosureOccupancy(allocatedCount.get(), inUseCount.get());
     }
 
     NativeClosurePointer newClosure(Object callable, Integer key) {
@@ -173,48 +275,46 @@ public final class NativeClosureFactory<T> {
     }
 
     ClosureReference newClosureReference(Object callable, Integer key) {
-
         NativeClosurePointer ptr = allocateClosurePointer();
         ClosureReference ref = new ClosureReference(callable, key, this, ptr);
         ptr.proxy.closureReference = ref;
-        if (closures.putIfAbsent(key, ref) == null) {
-            return ref;
-        }
 
-        synchronized (closures) {
-            do {
-                // prepend and make new pointer the list head
-                ref.next = closures.get(key);
+        for (;;) {
+            ClosureReference[] refs = closures.get(key);
+            ClosureReference existing = find(refs, callable);
+            if (existing != null) {
+                // Another thread registered the same callable first; hand the unused pointer back
+                ref.clear();
+                ptr.proxy.closureReference = null;
+                recycle(ptr);
+                return existing;
+            }
 
-                // If old value already removed (e.g. by expunge), just put the new value in
-                if (ref.next == null && closures.putIfAbsent(key, ref) == null) {
+            if (refs == null) {
+                if (closures.putIfAbsent(key, new ClosureReference[] { ref }) == null) {
+                    break;
+                }
+            } else {
+                ClosureReference[] added = Arrays.copyOf(refs, refs.length + 1);
+                added[refs.length] = ref;
+                if (closures.replace(key, refs, added)) {
                     break;
                 }
-            } while (!closures.replace(key, ref.next, ref));
+            }
         }
+        inUseCount.incrementAndGet();
 
         return ref;
     }
 
+    <C> PinnedClosure<C> pin(C callable) {
+        return new Pin<C>(getClosureReference(callable), callable);
+    }
+
     ClosureReference getClosureReference(Object callable) {
         Integer key = System.identityHashCode(callable);
-        ClosureReference ref = closures.get(key);
-        if (ref != null) {
-            // Simple case - no identity hash code clash - just return the ptr
-            if (ref.getCallable() == callable) {
-                return ref;
-            }
-
-            // There has been a key clash, search the list
-            synchronized (closures) {
-                while ((ref = ref.next) != null) {
-                    if (ref.getCallable() == callable) {
-                        return ref;
-                    }
-                }
-            }
-        }
+        ClosureReference ref = find(closures.get(key), callable);
 
-        return newClosureReference(callable, key);
+        return ref != null ? ref : newClosureReference(callable, key);
     }
 }
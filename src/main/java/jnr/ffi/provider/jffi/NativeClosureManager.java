@@ -25,16 +25,32 @@ import jnr.ffi.mapper.SignatureTypeMapper;
 import jnr.ffi.mapper.ToNativeContext;
 import jnr.ffi.mapper.ToNativeConverter;
 import jnr.ffi.provider.ClosureManager;
+import jnr.ffi.provider.ClosureOccupancy;
+import jnr.ffi.provider.PinnedClosure;
 
-import java.util.IdentityHashMap;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  *
  */
 final class NativeClosureManager implements ClosureManager {
-    private volatile Map<Class<?>, NativeClosureFactory> factories = new IdentityHashMap<Class<?>, NativeClosureFactory>();
-    private volatile Map<ClassLoader,AsmClassLoader> asmClassLoaders = new IdentityHashMap<ClassLoader,AsmClassLoader>();
+    /** Closure factories are created concurrently for different classes, and go away with their class */
+    private final ClassValue<NativeClosureFactory> factories = new ClassValue<NativeClosureFactory>() {
+        @Override
+        protected NativeClosureFactory computeValue(Class<?> closureClass) {
+            return NativeClosureFactory.newClosureFactory(runtime, closureClass, typeMapper,
+                    getAsmClassLoader(closureClass.getClassLoader()));
+        }
+    };
+    /*
+     * An AsmClassLoader is reachable from the proxies it defines, so it is only weakly referenced here; once the
+     * closure classes of a class loader are unloaded, both the loader and its generated proxies can be collected.
+     */
+    private final Map<ClassLoader, Reference<AsmClassLoader>> asmClassLoaders
+            = new WeakHashMap<ClassLoader, Reference<AsmClassLoader>>();
     private final jnr.ffi.Runtime runtime;
     private final SignatureTypeMapper typeMapper;
 
@@ -43,25 +59,26 @@ final class NativeClosureManager implements ClosureManager {
         this.typeMapper = new CompositeTypeMapper(typeMapper, new CachingTypeMapper(new ClosureTypeMapper()));
     }
 
+    @SuppressWarnings("unchecked")
     <T> NativeClosureFactory<T> getClosureFactory(Class<T> closureClass) {
-        NativeClosureFactory<T> factory = factories.get(closureClass);
-        if (factory != null) {
-            return factory;
-        }
-        AsmClassLoader asmCl = asmClassLoaders.get(closureClass.getClassLoader());
-        if (asmCl==null) {
-            asmCl = new AsmClassLoader( closureClass.getClassLoader());
-            asmClassLoaders.put(closureClass.getClassLoader(), asmCl);
-        }
+        return factories.get(closureClass);
+    }
+
+    private AsmClassLoader getAsmClassLoader(ClassLoader parent) {
+        synchronized (asmClassLoaders) {
+            Reference<AsmClassLoader> ref = asmClassLoaders.get(parent);
+            AsmClassLoader asmCl = ref != null ? ref.get() : null;
+            if (asmCl == null) {
+                asmCl = new AsmClassLoader(parent);
+                asmClassLoaders.put(parent, new WeakReference<AsmClassLoader>(asmCl));
+            }
 
-        return initClosureFactory(closureClass, asmCl);
+            return asmCl;
+        }
     }
 
     public <T> T newClosure(Class<? extends T> closureClass, T instance) {
-        NativeClosureFactory<T> factory = factories.get(closureClass);
-        if (factory != null) {
-            //return factory.newClosure(instance);
-        }
+        //return getClosureFactory(closureClass).newClosure(instance);
         return null;
     }
 
@@ -69,20 +86,20 @@ final class NativeClosureManager implements ClosureManager {
         return getClosureFactory(closureClass).getClosureReference(instance).getPointer();
     }
 
-    synchronized <T> NativeClosureFactory<T> initClosureFactory(Class<T> closureClass, AsmClassLoader classLoader) {
-        NativeClosureFactory<T> factory = factories.get(closureClass);
-        if (factory != null) {
-            return factory;
-        }
+    public void preallocate(Class<?> closureClass, int count) {
+        getClosureFactory(closureClass).preallocate(count);
+    }
 
+    public ClosureOccupancy getOccupancy(Class<?> closureClass) {
+        return getClosureFactory(closureClass).getOccupancy();
+    }
 
-        factory = NativeClosureFactory.newClosureFactory(runtime, closureClass, typeMapper, classLoader);
-        Map<Class<?>, NativeClosureFactory> factories = new IdentityHashMap<Class<?>, NativeClosureFactory>();
-        factories.putAll(this.factories);
-        factories.put(closureClass, factory);
-        this.factories = factories;
+    public <T> PinnedClosure<T> pin(Class<? extends T> closureClass, T callable) {
+        if (callable == null) {
+            throw new NullPointerException("callable is null");
+        }
 
-        return factory;
+        return getClosureFactory(closureClass).pin(callable);
     }
 
     <T> ToNativeConverter<T, Pointer> newClosureSite(Class<T> closureClass) {
@@ -21,6 +21,7 @@ package jnr.ffi.provider.jffi;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 
 import java.io.PrintWriter;
 import java.lang.ref.Reference;
@@ -55,6 +56,12 @@ import static org.objectweb.asm.Opcodes.V1_8;
 public abstract class NativeClosureProxy {
     protected final jnr.ffi.Runtime runtime;
     volatile Reference<?> closureReference;
+    /*
+     * The callable, while the closure is pinned; checked by the generated invoke method before closureReference.
+     * It is not volatile, so upcalls through unpinned closures only pay for a plain load.  A racing upcall that
+     * misses the pin falls back to closureReference, whose referent this field keeps reachable meanwhile.
+     */
+    protected Object pinnedCallable;
 
     protected NativeClosureProxy(NativeRuntime runtime) {
         this.runtime = runtime;
@@ -120,9 +127,18 @@ public abstract class NativeClosureProxy {
                 null, null);
         mv.start();
 
-        // Cast the callable instance to the correct class
+        // Use the pinned callable if there is one, else dereference the weak reference to the callable
+        Label haveCallable = new Label();
+        mv.aload(0);
+        mv.getfield(p(NativeClosureProxy.class), "pinnedCallable", ci(Object.class));
+        mv.dup();
+        mv.ifnonnull(haveCallable);
+        mv.pop();
         mv.aload(0);
         mv.invokevirtual(NativeClosureProxy.class, "getCallable", Object.class);
+        mv.label(haveCallable);
+
+        // Cast the callable instance to the correct class
         mv.checkcast(p(callMethod.getDeclaringClass()));
 
         LocalVariable[] parameterVariables = AsmUtil.getParameterVariables(nativeParameterClasses);
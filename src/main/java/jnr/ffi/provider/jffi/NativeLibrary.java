@@ -29,9 +29,13 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,19 +44,36 @@ import jnr.ffi.LibraryOption;
 import jnr.ffi.Platform;
 import jnr.ffi.Runtime;
 
+import static jnr.ffi.provider.jffi.Util.getBooleanProperty;
+
 public class NativeLibrary {
+    private static final boolean SYMBOL_CACHE_ENABLED = getBooleanProperty("jnr.ffi.symbol.cache.enabled", true);
+
     private final List<String> libraryNames;
     private final List<String> searchPaths;
     private final List<String> successfulPaths = new ArrayList<>();
     private final Map<LibraryOption, Object> options;
 
-    private volatile List<com.kenai.jffi.Library> nativeLibraries = Collections.emptyList();
+    /** Resolved symbol addresses */
+    private final ConcurrentMap<String, Long> symbols = new ConcurrentHashMap<>();
+
+    /** Symbols that could not be found, with the error from the failed lookup */
+    private final ConcurrentMap<String, String> missingSymbols = new ConcurrentHashMap<>();
+
+    /**
+     * Whether missing symbols can be remembered.  The default library searches everything loaded into the
+     * process, so a symbol missing from it now may be found once another library is loaded.
+     */
+    private final boolean cacheMissingSymbols;
+
+    private volatile List<com.kenai.jffi.Library> nativeLibraries;
 
     NativeLibrary(Collection<String> libraryNames, Collection<String> searchPaths,
                   Map<LibraryOption, Object> options) {
         this.libraryNames = Collections.unmodifiableList(new ArrayList<>(libraryNames));
         this.searchPaths = Collections.unmodifiableList(new ArrayList<>(searchPaths));
         this.options = options;
+        this.cacheMissingSymbols = SYMBOL_CACHE_ENABLED && !libraryNames.contains(LibraryLoader.DEFAULT_LIBRARY);
         if (options.containsKey(LibraryOption.LoadNow)) getNativeLibraries();
     }
 
@@ -61,31 +82,108 @@ public class NativeLibrary {
     }
 
     long getSymbolAddress(String name) {
+        Long cached = symbols.get(name);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (missingSymbols.containsKey(name)) {
+            return 0;
+        }
+
         for (com.kenai.jffi.Library l : getNativeLibraries()) {
             long address = l.getSymbolAddress(name);
             if (address != 0) {
+                if (SYMBOL_CACHE_ENABLED) {
+                    symbols.put(name, address);
+                }
                 return address;
             }
         }
+
+        if (cacheMissingSymbols) {
+            missingSymbols.put(name, com.kenai.jffi.Library.getLastError());
+        }
+
         return 0;
     }
 
     long findSymbolAddress(String name) {
         long address = getSymbolAddress(name);
         if (address == 0) {
-            throw new SymbolNotFoundError(com.kenai.jffi.Library.getLastError());
+            String error = missingSymbols.get(name);
+            throw new SymbolNotFoundError(error != null ? error : com.kenai.jffi.Library.getLastError());
         }
         return address;
     }
 
-    private synchronized List<com.kenai.jffi.Library> getNativeLibraries() {
-        if (!this.nativeLibraries.isEmpty()) {
+    /**
+     * Resolves a batch of symbols, such as all the functions of a library interface, walking the loaded
+     * libraries once instead of once per symbol.
+     *
+     * @param names the symbol names to resolve.
+     * @return the addresses of the symbols that were found, keyed by name.
+     */
+    Map<String, Long> resolveAll(Collection<String> names) {
+        Map<String, Long> addresses = new LinkedHashMap<>();
+        List<String> unresolved = new ArrayList<>();
+        for (String name : names) {
+            Long cached = symbols.get(name);
+            if (cached != null) {
+                addresses.put(name, cached);
+            } else if (!missingSymbols.containsKey(name)) {
+                unresolved.add(name);
+            }
+        }
+
+        if (unresolved.isEmpty()) {
+            return addresses;
+        }
+
+        List<com.kenai.jffi.Library> libraries = getNativeLibraries();
+        for (int i = 0; i < libraries.size() && !unresolved.isEmpty(); i++) {
+            boolean lastLibrary = i == libraries.size() - 1;
+            for (Iterator<String> it = unresolved.iterator(); it.hasNext(); ) {
+                String name = it.next();
+                long address = libraries.get(i).getSymbolAddress(name);
+                if (address != 0) {
+                    addresses.put(name, address);
+                    if (SYMBOL_CACHE_ENABLED) {
+                        symbols.put(name, address);
+                    }
+                    it.remove();
+
+                } else if (lastLibrary && cacheMissingSymbols) {
+                    missingSymbols.put(name, com.kenai.jffi.Library.getLastError());
+                }
+            }
+        }
+
+        return addresses;
+    }
+
+    /**
+     * Replaces the loaded native libraries, so tests can tell which lookups are answered without them.
+     */
+    void setNativeLibraries(List<com.kenai.jffi.Library> libraries) {
+        nativeLibraries = libraries;
+    }
+
+    private List<com.kenai.jffi.Library> getNativeLibraries() {
+        List<com.kenai.jffi.Library> libraries = nativeLibraries;
+        if (libraries != null) {
+            return libraries;
+        }
+
+        synchronized (this) {
+            if (nativeLibraries == null) {
+                nativeLibraries = loadNativeLibraries();
+            }
             return nativeLibraries;
         }
-        return nativeLibraries = loadNativeLibraries();
     }
 
-    private synchronized List<com.kenai.jffi.Library> loadNativeLibraries() {
+    private List<com.kenai.jffi.Library> loadNativeLibraries() {
         List<com.kenai.jffi.Library> libs = new ArrayList<>();
 
         for (String libraryName : libraryNames) {
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.provider.MemoryArena;
+
+import java.util.Arrays;
+
+/**
+ * A bump allocator over malloc'ed chunks of native memory, confined to the thread that created it.
+ *
+ * The chunk size can be set with the {@code jnr.ffi.arena.chunk.size} system property.
+ */
+class NativeMemoryArena implements MemoryArena {
+    static final int CHUNK_SIZE = Math.max(256, getChunkSize());
+
+    private static final com.kenai.jffi.MemoryIO IO = com.kenai.jffi.MemoryIO.getInstance();
+    private static final int DEFAULT_ALIGN = 8;
+
+    private final jnr.ffi.Runtime runtime;
+    private final Thread owner;
+    private long[] chunks = new long[4];
+    private int chunkCount;
+    private long next, end;
+    private boolean closed;
+
+    NativeMemoryArena(jnr.ffi.Runtime runtime) {
+        this(runtime, Thread.currentThread());
+    }
+
+    private NativeMemoryArena(jnr.ffi.Runtime runtime, Thread owner) {
+        this.runtime = runtime;
+        this.owner = owner;
+    }
+
+    public Pointer allocate(long size) {
+        return allocate(size, DEFAULT_ALIGN, true);
+    }
+
+    public Pointer allocate(long size, boolean clear) {
+        return allocate(size, DEFAULT_ALIGN, clear);
+    }
+
+    public Pointer allocate(long size, int align, boolean clear) {
+        checkAccess();
+        if (size < 0) {
+            throw new IllegalArgumentException("negative size: " + size);
+        }
+        if (align <= 0 || (align & (align - 1)) != 0) {
+            throw new IllegalArgumentException("alignment is not a power of two: " + align);
+        }
+
+        long address = align(next, align);
+        if (next == 0 || address + size > end) {
+            if (size + align > CHUNK_SIZE / 2) {
+                // Big allocations get a chunk of their own, so they do not waste the rest of the current chunk
+                address = align(newChunk(size + align - 1), align);
+            } else {
+                next = newChunk(CHUNK_SIZE);
+                end = next + CHUNK_SIZE;
+                address = align(next, align);
+                next = address + size;
+            }
+        } else {
+            next = address + size;
+        }
+
+        if (clear) {
+            IO.setMemory(address, size, (byte) 0);
+        }
+
+        return new BoundedDirectMemoryIO(runtime, address, size, null);
+    }
+
+    public void close() {
+        checkOwner();
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        for (int i = 0; i < chunkCount; i++) {
+            IO.freeMemory(chunks[i]);
+        }
+        chunks = null;
+        chunkCount = 0;
+        next = end = 0;
+    }
+
+    private long newChunk(long size) {
+        long chunk = IO.allocateMemory(size, false);
+        if (chunk == 0L) {
+            throw new OutOfMemoryError("Failed to allocate " + size + " bytes");
+        }
+
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        chunks[chunkCount++] = chunk;
+
+        return chunk;
+    }
+
+    private void checkAccess() {
+        checkOwner();
+        if (closed) {
+            throw new IllegalStateException("arena is closed");
+        }
+    }
+
+    private void checkOwner() {
+        if (owner != null && owner != Thread.currentThread()) {
+            throw new IllegalStateException("arena is confined to thread " + owner.getName());
+        }
+    }
+
+    private static long align(long offset, long align) {
+        return (offset + align - 1L) & ~(align - 1L);
+    }
+
+    private static int getChunkSize() {
+        try {
+            return Integer.getInteger("jnr.ffi.arena.chunk.size", 8192);
+        } catch (SecurityException se) {
+            return 8192;
+        }
+    }
+
+    /**
+     * An arena that may be used from any thread.
+     */
+    static final class Shared extends NativeMemoryArena {
+        Shared(jnr.ffi.Runtime runtime) {
+            super(runtime, null);
+        }
+
+        @Override
+        public synchronized Pointer allocate(long size, int align, boolean clear) {
+            return super.allocate(size, align, clear);
+        }
+
+        @Override
+        public synchronized void close() {
+            super.close();
+        }
+    }
+}
@@ -19,12 +19,18 @@
 package jnr.ffi.provider.jffi;
 
 import jnr.ffi.Pointer;
-import jnr.ffi.provider.BoundedMemoryIO;
 import jnr.ffi.provider.IntPointer;
+import jnr.ffi.provider.MemoryArena;
 
 import java.nio.ByteBuffer;
 
 public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
+    /**
+     * Direct and temporary memory is bounds checked, unless the {@code jnr.ffi.memory.unchecked} system property
+     * is set to {@code true} for trusted code that wants to avoid the cost of the checks.
+     */
+    private static final boolean BOUNDS_CHECKED = !Util.getBooleanProperty("jnr.ffi.memory.unchecked", false);
+
     private final jnr.ffi.Runtime runtime;
     private final long addressMask;
 
@@ -38,27 +44,27 @@ public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
     }
 
     public Pointer allocateDirect(int size) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
+        return TransientNativeMemory.allocate(runtime, size, 8, true, BOUNDS_CHECKED);
     }
 
     public Pointer allocateDirect(long size) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
+        return TransientNativeMemory.allocate(runtime, size, 8, true, BOUNDS_CHECKED);
     }
 
     public Pointer allocateDirect(int size, boolean clear) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
+        return TransientNativeMemory.allocate(runtime, size, 8, clear, BOUNDS_CHECKED);
     }
 
     public Pointer allocateDirect(long size, boolean clear) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
+        return TransientNativeMemory.allocate(runtime, size, 8, clear, BOUNDS_CHECKED);
     }
 
     public Pointer allocateTemporary(int size) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, true), 0, size);
+        return TransientNativeMemory.allocate(runtime, size, 8, true, BOUNDS_CHECKED);
     }
 
     public Pointer allocateTemporary(int size, boolean clear) {
-        return new BoundedMemoryIO(TransientNativeMemory.allocate(runtime, size, 8, clear), 0, size);
+        return TransientNativeMemory.allocate(runtime, size, 8, clear, BOUNDS_CHECKED);
     }
 
     public Pointer newPointer(ByteBuffer buffer) {
@@ -70,11 +76,19 @@ public class NativeMemoryManager implements jnr.ffi.provider.MemoryManager {
     }
 
     public Pointer newPointer(long address, long size) {
-        return new BoundedMemoryIO(new DirectMemoryIO(runtime, address & addressMask), 0, size);
+        return new BoundedDirectMemoryIO(runtime, address & addressMask, size, null);
     }
 
     public Pointer newOpaquePointer(long address) {
         return new IntPointer(runtime, address);
     }
 
+    public MemoryArena newArena() {
+        return new NativeMemoryArena(runtime);
+    }
+
+    public MemoryArena newSharedArena() {
+        return new NativeMemoryArena.Shared(runtime);
+    }
+
 }
@@ -0,0 +1,627 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.MemoryIO;
+import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
+import jnr.ffi.StructView;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jnr.ffi.provider.jffi.CodegenUtils.ci;
+import static jnr.ffi.provider.jffi.CodegenUtils.p;
+import static jnr.ffi.provider.jffi.CodegenUtils.sig;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+/**
+ * Generates {@link StructView} implementations of interfaces of getters and setters.
+ *
+ * Each accessor of a generated view is a single {@link MemoryIO} read or write of the address of the current record
+ * plus the constant offset of its field.  When asm is disabled, views are proxies that do the same reads and writes
+ * by reflection.
+ */
+public final class StructViewGenerator {
+    private static final MemoryIO IO = MemoryIO.getInstance();
+    private static final AtomicLong nextClassID = new AtomicLong(0);
+
+    /**
+     * Creates views of one interface over one struct layout.
+     *
+     * @param <T> the view interface.
+     */
+    public interface Factory<T> {
+        /**
+         * Creates a new view.
+         *
+         * @param memory the native memory holding the record.
+         * @param offset the offset of the record within {@code memory}.
+         * @return a view of the record.
+         */
+        T newView(Pointer memory, long offset);
+    }
+
+    private StructViewGenerator() {
+    }
+
+    /**
+     * Creates a factory for views of {@code viewInterface}.
+     *
+     * @param runtime the runtime the struct is laid out for.
+     * @param viewInterface the interface implemented by the views.
+     * @param methods the getters and setters of {@code viewInterface}.
+     * @param offsets the offset of the field each getter or setter accesses.
+     * @param types the native type of the field each getter or setter accesses.
+     * @param <T> the view interface.
+     * @return a factory for views.
+     */
+    public static <T> Factory<T> newFactory(jnr.ffi.Runtime runtime, Class<T> viewInterface, Method[] methods,
+                                            long[] offsets, NativeType[] types) {
+        return newFactory(runtime, viewInterface, methods, offsets, types, NativeLibraryLoader.ASM_ENABLED);
+    }
+
+    static <T> Factory<T> newFactory(jnr.ffi.Runtime runtime, Class<T> viewInterface, Method[] methods,
+                                     long[] offsets, NativeType[] types, boolean asm) {
+        if (!viewInterface.isInterface() || !Modifier.isPublic(viewInterface.getModifiers())) {
+            throw new IllegalArgumentException(viewInterface.getName() + " is not a public interface");
+        }
+
+        Accessor[] accessors = new Accessor[methods.length];
+        long extent = 0;
+        for (int i = 0; i < methods.length; i++) {
+            accessors[i] = new Accessor(runtime, methods[i], offsets[i], types[i]);
+            extent = Math.max(extent, offsets[i] + runtime.findType(types[i]).size());
+        }
+
+        return asm
+                ? newAsmFactory(runtime, viewInterface, accessors, extent)
+                : new ReflectionFactory<T>(viewInterface, accessors, extent);
+    }
+
+    private static <T> Factory<T> newAsmFactory(jnr.ffi.Runtime runtime, Class<T> viewInterface, Accessor[] accessors, long extent) {
+        boolean debug = AsmLibraryLoader.DEBUG && !viewInterface.isAnnotationPresent(NoTrace.class);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        ClassVisitor cv = debug ? AsmUtil.newCheckClassAdapter(cw) : cw;
+
+        AsmBuilder builder = new AsmBuilder(runtime, p(viewInterface) + "$$jnr$$StructView$$" + nextClassID.getAndIncrement(),
+                cv, new AsmClassLoader(viewInterface.getClassLoader()));
+        cv.visit(V1_8, ACC_PUBLIC | ACC_FINAL, builder.getClassNamePath(), null, p(AbstractStructView.class),
+                new String[] { p(viewInterface) });
+
+        SkinnyMethodAdapter init = new SkinnyMethodAdapter(cv, ACC_PUBLIC, "<init>", sig(void.class), null, null);
+        init.start();
+        init.aload(0);
+        init.ldc(extent);
+        init.invokespecial(p(AbstractStructView.class), "<init>", sig(void.class, long.class));
+        init.voidreturn();
+        init.visitMaxs(10, 10);
+        init.visitEnd();
+
+        for (Accessor accessor : accessors) {
+            Method m = accessor.method;
+            SkinnyMethodAdapter mv = new SkinnyMethodAdapter(cv, ACC_PUBLIC | ACC_FINAL, m.getName(),
+                    sig(m.getReturnType(), m.getParameterTypes()), null, null);
+            mv.start();
+            mv.getstatic(p(AsmRuntime.class), "IO", ci(MemoryIO.class));
+            mv.aload(0);
+            mv.getfield(builder.getClassNamePath(), "address", ci(long.class));
+            if (accessor.offset != 0) {
+                mv.ldc(accessor.offset);
+                mv.ladd();
+            }
+
+            if (accessor.setter) {
+                load(mv, accessor.javaType);
+                emitToNative(mv, accessor);
+                mv.invokevirtual(p(MemoryIO.class), "put" + accessor.access.name, sig(void.class, long.class, accessor.access.nativeClass));
+                mv.voidreturn();
+            } else {
+                mv.invokevirtual(p(MemoryIO.class), "get" + accessor.access.name, sig(accessor.access.nativeClass, long.class));
+                emitFromNative(mv, accessor);
+                emitReturn(mv, accessor.javaType);
+            }
+            mv.visitMaxs(10, 10);
+            mv.visitEnd();
+        }
+
+        cv.visitEnd();
+
+        try {
+            byte[] bytes = cw.toByteArray();
+            if (debug) {
+                ClassVisitor trace = AsmUtil.newTraceClassVisitor(new PrintWriter(System.err));
+                new ClassReader(bytes).accept(trace, 0);
+            }
+
+            Class<? extends AbstractStructView> implClass = builder.getClassLoader().defineClass(builder.getClassNamePath().replace("/", "."), bytes);
+            return new AsmFactory<T>(viewInterface, implClass.getConstructor());
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static void load(SkinnyMethodAdapter mv, Class javaType) {
+        if (javaType == long.class) {
+            mv.lload(1);
+        } else if (javaType == float.class) {
+            mv.fload(1);
+        } else if (javaType == double.class) {
+            mv.dload(1);
+        } else {
+            mv.iload(1);
+        }
+    }
+
+    private static void emitReturn(SkinnyMethodAdapter mv, Class javaType) {
+        if (javaType == long.class) {
+            mv.lreturn();
+        } else if (javaType == float.class) {
+            mv.freturn();
+        } else if (javaType == double.class) {
+            mv.dreturn();
+        } else {
+            mv.ireturn();
+        }
+    }
+
+    private static void emitFromNative(SkinnyMethodAdapter mv, Accessor accessor) {
+        Access access = accessor.access;
+        Class javaType = accessor.javaType;
+
+        if (access == Access.FLOAT) {
+            if (javaType == double.class) {
+                mv.f2d();
+            }
+
+        } else if (access == Access.DOUBLE) {
+            if (javaType == float.class) {
+                mv.d2f();
+            }
+
+        } else if (javaType == boolean.class) {
+            if (access.nativeClass == long.class) {
+                mv.lconst_0();
+                mv.lcmp();
+            }
+            Label zero = new Label();
+            Label done = new Label();
+            mv.ifeq(zero);
+            mv.iconst_1();
+            mv.go_to(done);
+            mv.label(zero);
+            mv.iconst_0();
+            mv.label(done);
+
+        } else if (access.nativeClass == long.class) {
+            if (javaType != long.class) {
+                mv.l2i();
+                narrow(mv, javaType);
+            }
+
+        } else if (javaType == long.class) {
+            mv.i2l();
+            if (accessor.unsigned) {
+                mv.ldc(access.mask());
+                mv.land();
+            }
+
+        } else {
+            if (accessor.unsigned && sizeof(javaType) > access.size) {
+                mv.ldc((int) access.mask());
+                mv.iand();
+            }
+            if (sizeof(javaType) < access.size) {
+                narrow(mv, javaType);
+            }
+        }
+    }
+
+    private static void emitToNative(SkinnyMethodAdapter mv, Accessor accessor) {
+        Access access = accessor.access;
+        Class javaType = accessor.javaType;
+
+        if (access == Access.FLOAT) {
+            if (javaType == double.class) {
+                mv.d2f();
+            }
+
+        } else if (access == Access.DOUBLE) {
+            if (javaType == float.class) {
+                mv.f2d();
+            }
+
+        } else if (javaType == long.class) {
+            if (access.nativeClass != long.class) {
+                mv.l2i();
+                narrow(mv, access.nativeClass);
+            }
+
+        } else if (access.nativeClass == long.class) {
+            mv.i2l();
+
+        } else if (sizeof(javaType) > access.size) {
+            narrow(mv, access.nativeClass);
+        }
+    }
+
+    private static void narrow(SkinnyMethodAdapter mv, Class type) {
+        if (type == byte.class) {
+            mv.i2b();
+        } else if (type == short.class) {
+            mv.i2s();
+        }
+    }
+
+    private static int sizeof(Class javaType) {
+        if (javaType == byte.class || javaType == boolean.class) {
+            return 1;
+        } else if (javaType == short.class) {
+            return 2;
+        } else if (javaType == long.class || javaType == double.class) {
+            return 8;
+        } else {
+            return 4;
+        }
+    }
+
+    /**
+     * The {@link MemoryIO} operation used to access a field.
+     */
+    private enum Access {
+        BYTE("Byte", byte.class, 1),
+        SHORT("Short", short.class, 2),
+        INT("Int", int.class, 4),
+        LONG("Long", long.class, 8),
+        FLOAT("Float", float.class, 4),
+        DOUBLE("Double", double.class, 8),
+        ADDRESS("Address", long.class, 8);
+
+        final String name;
+        final Class nativeClass;
+        final int size;
+
+        Access(String name, Class nativeClass, int size) {
+            this.name = name;
+            this.nativeClass = nativeClass;
+            this.size = size;
+        }
+
+        long mask() {
+            return size < 8 ? (1L << (size * 8)) - 1 : -1L;
+        }
+
+        boolean isInteger() {
+            return this != FLOAT && this != DOUBLE && this != ADDRESS;
+        }
+
+        static Access get(jnr.ffi.Runtime runtime, NativeType type) {
+            switch (type) {
+                case SCHAR:
+                case UCHAR:
+                    return BYTE;
+                case SSHORT:
+                case USHORT:
+                    return SHORT;
+                case SINT:
+                case UINT:
+                    return INT;
+                case SLONG:
+                case ULONG:
+                    return runtime.longSize() == 8 ? LONG : INT;
+                case SLONGLONG:
+                case ULONGLONG:
+                    return LONG;
+                case FLOAT:
+                    return FLOAT;
+                case DOUBLE:
+                    return DOUBLE;
+                case ADDRESS:
+                    return ADDRESS;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final class Accessor {
+        final Method method;
+        final long offset;
+        final Access access;
+        final boolean unsigned;
+        final boolean setter;
+        final Class javaType;
+
+        Accessor(jnr.ffi.Runtime runtime, Method method, long offset, NativeType type) {
+            this.method = method;
+            this.offset = offset;
+            this.access = Access.get(runtime, type);
+            this.unsigned = type == NativeType.UCHAR || type == NativeType.USHORT || type == NativeType.UINT
+                    || type == NativeType.ULONG || type == NativeType.ULONGLONG;
+
+            Class[] parameterTypes = method.getParameterTypes();
+            if (parameterTypes.length == 0 && method.getReturnType() != void.class) {
+                this.setter = false;
+                this.javaType = method.getReturnType();
+            } else if (parameterTypes.length == 1 && method.getReturnType() == void.class) {
+                this.setter = true;
+                this.javaType = parameterTypes[0];
+            } else {
+                throw new IllegalArgumentException("not a getter or setter: " + method);
+            }
+
+            if (access == null) {
+                throw new IllegalArgumentException("struct field type not supported: " + type + " for " + method);
+            }
+
+            boolean supported;
+            if (access.isInteger()) {
+                supported = javaType == boolean.class || javaType == byte.class || javaType == short.class
+                        || javaType == int.class || javaType == long.class;
+            } else if (access == Access.ADDRESS) {
+                supported = javaType == long.class;
+            } else {
+                supported = javaType == float.class || javaType == double.class;
+            }
+            if (!supported) {
+                throw new IllegalArgumentException("cannot access " + type + " field as " + javaType + " in " + method);
+            }
+        }
+
+        Object get(long address) {
+            long a = address + offset;
+            switch (access) {
+                case FLOAT:
+                    return javaType == float.class ? (Object) IO.getFloat(a) : (Object) (double) IO.getFloat(a);
+                case DOUBLE:
+                    return javaType == double.class ? (Object) IO.getDouble(a) : (Object) (float) IO.getDouble(a);
+            }
+
+            long value;
+            switch (access) {
+                case BYTE:
+                    value = IO.getByte(a);
+                    break;
+                case SHORT:
+                    value = IO.getShort(a);
+                    break;
+                case INT:
+                    value = IO.getInt(a);
+                    break;
+                case ADDRESS:
+                    return IO.getAddress(a);
+                default:
+                    value = IO.getLong(a);
+                    break;
+            }
+
+            if (unsigned) {
+                value &= access.mask();
+            }
+
+            if (javaType == boolean.class) {
+                return value != 0;
+            } else if (javaType == byte.class) {
+                return (byte) value;
+            } else if (javaType == short.class) {
+                return (short) value;
+            } else if (javaType == int.class) {
+                return (int) value;
+            } else {
+                return value;
+            }
+        }
+
+        void set(long address, Object value) {
+            long a = address + offset;
+            switch (access) {
+                case FLOAT:
+                    IO.putFloat(a, ((Number) value).floatValue());
+                    return;
+                case DOUBLE:
+                    IO.putDouble(a, ((Number) value).doubleValue());
+                    return;
+            }
+
+            long v = value instanceof Boolean ? ((Boolean) value ? 1 : 0) : ((Number) value).longValue();
+            switch (access) {
+                case BYTE:
+                    IO.putByte(a, (byte) v);
+                    break;
+                case SHORT:
+                    IO.putShort(a, (short) v);
+                    break;
+                case INT:
+                    IO.putInt(a, (int) v);
+                    break;
+                case ADDRESS:
+                    IO.putAddress(a, v);
+                    break;
+                default:
+                    IO.putLong(a, v);
+                    break;
+            }
+        }
+    }
+
+    private static final class AsmFactory<T> implements Factory<T> {
+        private final Class<T> viewInterface;
+        private final Constructor<? extends AbstractStructView> constructor;
+
+        AsmFactory(Class<T> viewInterface, Constructor<? extends AbstractStructView> constructor) {
+            this.viewInterface = viewInterface;
+            this.constructor = constructor;
+        }
+
+        public T newView(Pointer memory, long offset) {
+            AbstractStructView view;
+            try {
+                view = constructor.newInstance();
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            view.useMemory(memory, offset);
+
+            return viewInterface.cast(view);
+        }
+    }
+
+    private static final class ReflectionFactory<T> implements Factory<T> {
+        private final Class<T> viewInterface;
+        private final Class[] interfaces;
+        private final Map<Method, Accessor> accessors = new HashMap<Method, Accessor>();
+        private final long extent;
+
+        ReflectionFactory(Class<T> viewInterface, Accessor[] accessors, long extent) {
+            this.viewInterface = viewInterface;
+            this.interfaces = StructView.class.isAssignableFrom(viewInterface)
+                    ? new Class[] { viewInterface } : new Class[] { viewInterface, StructView.class };
+            for (Accessor accessor : accessors) {
+                this.accessors.put(accessor.method, accessor);
+            }
+            this.extent = extent;
+        }
+
+        public T newView(Pointer memory, long offset) {
+            ReflectionStructView view = new ReflectionStructView(accessors, extent);
+            view.useMemory(memory, offset);
+
+            return viewInterface.cast(Proxy.newProxyInstance(viewInterface.getClassLoader(), interfaces, view));
+        }
+    }
+
+    private static final class ReflectionStructView extends AbstractStructView implements InvocationHandler {
+        private final Map<Method, Accessor> accessors;
+
+        ReflectionStructView(Map<Method, Accessor> accessors, long extent) {
+            super(extent);
+            this.accessors = accessors;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Accessor accessor = accessors.get(method);
+            if (accessor != null) {
+                if (accessor.setter) {
+                    accessor.set(address, args[0]);
+                    return null;
+                }
+                return accessor.get(address);
+            }
+
+            if (method.getDeclaringClass() == StructView.class) {
+                try {
+                    return method.invoke(this, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+
+            } else if (method.isDefault()) {
+                return DefaultMethods.invoke(proxy, method, args);
+
+            } else if (method.getName().equals("equals") && method.getParameterTypes().length == 1) {
+                return proxy == args[0];
+
+            } else if (method.getName().equals("hashCode") && method.getParameterTypes().length == 0) {
+                return System.identityHashCode(proxy);
+
+            } else if (method.getName().equals("toString") && method.getParameterTypes().length == 0) {
+                return proxy.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+
+            throw new UnsupportedOperationException(method + " is not supported when asm is disabled");
+        }
+    }
+
+    /**
+     * Calls the default methods of view interfaces on proxies, with {@code InvocationHandler.invokeDefault} where
+     * it is available (java 16 and later), else through a method handle that bypasses the proxy.
+     */
+    private static final class DefaultMethods {
+        private static final Method INVOKE_DEFAULT = getMethod(InvocationHandler.class, "invokeDefault",
+                Object.class, Method.class, Object[].class);
+        private static final Method PRIVATE_LOOKUP_IN = getMethod(MethodHandles.class, "privateLookupIn",
+                Class.class, MethodHandles.Lookup.class);
+
+        // Keyed by the interface declaring each method, so the handles go away with the interface's class loader
+        private static final ClassValue<Map<Method, MethodHandle>> HANDLES = new ClassValue<Map<Method, MethodHandle>>() {
+            @Override
+            protected Map<Method, MethodHandle> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<Method, MethodHandle>();
+            }
+        };
+
+        private static Method getMethod(Class<?> klass, String name, Class<?>... parameterTypes) {
+            try {
+                return klass.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException ex) {
+                return null;
+            }
+        }
+
+        static Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (INVOKE_DEFAULT != null) {
+                try {
+                    return INVOKE_DEFAULT.invoke(null, proxy, method, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            }
+
+            Map<Method, MethodHandle> handles = HANDLES.get(method.getDeclaringClass());
+            MethodHandle handle = handles.get(method);
+            if (handle == null) {
+                handles.put(method, handle = unreflectSpecial(method));
+            }
+
+            return handle.bindTo(proxy).invokeWithArguments(args != null ? args : new Object[0]);
+        }
+
+        private static MethodHandle unreflectSpecial(Method method) throws ReflectiveOperationException {
+            Class<?> declaringClass = method.getDeclaringClass();
+            MethodHandles.Lookup lookup;
+            if (PRIVATE_LOOKUP_IN != null) {
+                lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, declaringClass, MethodHandles.lookup());
+            } else {
+                // java 8 has no public way to get a lookup with private access to another class
+                Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+                constructor.setAccessible(true);
+                lookup = constructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE);
+            }
+
+            return lookup.unreflectSpecial(method, declaringClass);
+        }
+    }
+}
@@ -25,10 +25,19 @@ import jnr.ffi.util.ref.FinalizableReferenceQueue;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Allocates small, short lived memory from per-thread magazines of native pages.
  *
+ * When all the memory allocated from a magazine is unreachable, its pages are kept in a pool to be
+ * reused by the next magazine, up to a limit, after which they are returned to the OS.  The number of
+ * pages per magazine and the maximum number of pooled magazines can be set with the
+ * {@code jnr.ffi.transient.magazine.pages} and {@code jnr.ffi.transient.pool.size} system properties.
  */
 public class TransientNativeMemory extends DirectMemoryIO {
     /** Keeps strong references to the magazine until cleanup */
@@ -36,7 +45,16 @@ public class TransientNativeMemory extends DirectMemoryIO {
     private static final Map<Magazine, Boolean> referenceSet = new ConcurrentHashMap<Magazine, Boolean>();
 
     private static final ThreadLocal<Magazine> currentMagazine = new ThreadLocal<Magazine>();
-    private static final int PAGES_PER_MAGAZINE = 2;
+    private static final int PAGES_PER_MAGAZINE = Math.max(1, getIntegerProperty("jnr.ffi.transient.magazine.pages", 2));
+    private static final int MAX_POOLED_MAGAZINES = Math.max(0, getIntegerProperty("jnr.ffi.transient.pool.size", 16));
+
+    /** The pages of magazines that are no longer in use */
+    private static final Queue<Long> pool = new ConcurrentLinkedQueue<Long>();
+    private static final AtomicInteger pooledMagazines = new AtomicInteger();
+
+    private static final AtomicLong pagesHeld = new AtomicLong();
+    private static final AtomicLong pagesReused = new AtomicLong();
+    private static final AtomicLong pagesFreed = new AtomicLong();
 
     private final Sentinel sentinel;
     private final long size;
@@ -46,12 +64,26 @@ public class TransientNativeMemory extends DirectMemoryIO {
     }
     
     public static DirectMemoryIO allocate(jnr.ffi.Runtime runtime, long size, int align, boolean clear) {
+        return allocate(runtime, size, align, clear, false);
+    }
+
+    /**
+     * Allocates transient native memory.
+     *
+     * @param runtime the runtime that owns the memory.
+     * @param size the size of the memory in bytes.
+     * @param align the alignment of the memory.
+     * @param clear whether the memory should be zero filled.
+     * @param bounded whether accesses to the returned memory should be checked against {@code size}.
+     * @return the allocated memory, which stays valid until it is garbage collected.
+     */
+    public static DirectMemoryIO allocate(jnr.ffi.Runtime runtime, long size, int align, boolean clear, boolean bounded) {
         if (size < 0) {
             throw new IllegalArgumentException("negative size: " + size);
         }
 
         if (size > 256) { /* Only use the transient allocator for small, short lived allocations */
-            return new AllocatedDirectMemoryIO(runtime, size, clear);
+            return allocateDirect(runtime, size, clear, bounded);
         }
 
         Magazine magazine = currentMagazine.get();
@@ -60,26 +92,117 @@ public class TransientNativeMemory extends DirectMemoryIO {
 
         if (sentinel == null || (address = magazine.allocate(size, align)) == 0) {
             PageManager pm = PageManager.getInstance();
-            long memory;
-            do {
-                memory = pm.allocatePages(PAGES_PER_MAGAZINE, PageManager.PROT_READ | PageManager.PROT_WRITE);
-                if (memory != 0L && memory != -1L) {
-                    break;
-                }
-
-                // No available pages; trigger a full GC to reclaim some memory
-                System.gc();
-                FinalizableReferenceQueue.cleanUpAll(); 
-            } while (true);
-
-            referenceSet.put(magazine = new Magazine(sentinel = new Sentinel(), pm, memory, PAGES_PER_MAGAZINE), Boolean.TRUE);
+            long memory = takePooledPages();
+            boolean recycled = memory != 0L;
+            if (!recycled && (memory = allocatePages(pm)) == 0L) {
+                // Recycle any magazines that are already known to be unreachable, and try the pool again
+                FinalizableReferenceQueue.cleanUpAll();
+                recycled = (memory = takePooledPages()) != 0L;
+            }
+
+            if (memory == 0L) {
+                // Out of pages; rather than forcing a GC to reclaim magazines, use ordinary malloc'ed memory
+                return allocateDirect(runtime, size, clear, bounded);
+            }
+
+            magazine = new Magazine(sentinel = new Sentinel(), pm, memory, PAGES_PER_MAGAZINE, recycled);
+            referenceSet.put(magazine, Boolean.TRUE);
             currentMagazine.set(magazine);
             address = magazine.allocate(size, align);
         }
 
-        return new TransientNativeMemory(runtime, sentinel, address, size);
+        // Fresh pages are zero filled, but recycled ones may hold data from previous allocations
+        if (clear && magazine.recycled) {
+            IO.setMemory(address, size, (byte) 0);
+        }
+
+        return bounded
+                ? new BoundedDirectMemoryIO(runtime, address, size, sentinel)
+                : new TransientNativeMemory(runtime, sentinel, address, size);
+    }
+
+    private static DirectMemoryIO allocateDirect(jnr.ffi.Runtime runtime, long size, boolean clear, boolean bounded) {
+        AllocatedDirectMemoryIO memory = new AllocatedDirectMemoryIO(runtime, size, clear);
+        return bounded ? new BoundedDirectMemoryIO(runtime, memory.address(), size, memory) : memory;
+    }
+
+    /**
+     * Gets the number of native pages currently held by the transient allocator, both in active magazines and
+     * in the pool.
+     *
+     * @return the number of pages held.
+     */
+    public static long getPagesHeld() {
+        return pagesHeld.get();
+    }
+
+    /**
+     * Gets the total number of native pages that new magazines took from the pool instead of allocating.
+     *
+     * @return the number of pages reused.
+     */
+    public static long getPagesReused() {
+        return pagesReused.get();
+    }
+
+    /**
+     * Gets the total number of native pages returned to the OS because the pool was full.
+     *
+     * @return the number of pages freed.
+     */
+    public static long getPagesFreed() {
+        return pagesFreed.get();
+    }
+
+    /**
+     * Gets the number of native pages in the pool, waiting to be reused.
+     *
+     * @return the number of pooled pages.
+     */
+    public static long getPagesPooled() {
+        return (long) pooledMagazines.get() * PAGES_PER_MAGAZINE;
+    }
+
+    private static long allocatePages(PageManager pm) {
+        long memory = pm.allocatePages(PAGES_PER_MAGAZINE, PageManager.PROT_READ | PageManager.PROT_WRITE);
+        if (memory == 0L || memory == -1L) {
+            return 0L;
+        }
+
+        pagesHeld.addAndGet(PAGES_PER_MAGAZINE);
+        return memory;
     }
 
+    private static long takePooledPages() {
+        Long memory = pool.poll();
+        if (memory == null) {
+            return 0L;
+        }
+
+        pooledMagazines.decrementAndGet();
+        pagesReused.addAndGet(PAGES_PER_MAGAZINE);
+        return memory;
+    }
+
+    private static void recycle(PageManager pm, long memory, int pageCount) {
+        if (pooledMagazines.incrementAndGet() <= MAX_POOLED_MAGAZINES) {
+            pool.offer(memory);
+            return;
+        }
+
+        pooledMagazines.decrementAndGet();
+        pm.freePages(memory, pageCount);
+        pagesHeld.addAndGet(-pageCount);
+        pagesFreed.addAndGet(pageCount);
+    }
+
+    private static int getIntegerProperty(String propertyName, int defaultValue) {
+        try {
+            return Integer.getInteger(propertyName, defaultValue);
+        } catch (SecurityException se) {
+            return defaultValue;
+        }
+    }
 
     TransientNativeMemory(jnr.ffi.Runtime runtime, Sentinel sentinel, long address, long size) {
         super(runtime, address);
@@ -126,14 +249,16 @@ public class TransientNativeMemory extends DirectMemoryIO {
         private final long page;
         private final long end;
         private final int pageCount;
+        private final boolean recycled;
         private long memory;
 
-        Magazine(Sentinel sentinel, PageManager pm, long page, int pageCount) {
+        Magazine(Sentinel sentinel, PageManager pm, long page, int pageCount, boolean recycled) {
             super(sentinel, NativeFinalizer.getInstance().getFinalizerQueue());
             this.sentinelReference = new WeakReference<Sentinel>(sentinel);
             this.pm = pm;
             this.memory = this.page = page;
             this.pageCount = pageCount;
+            this.recycled = recycled;
             this.end = memory + (pageCount * pm.pageSize());
         }
         
@@ -152,7 +277,7 @@ public class TransientNativeMemory extends DirectMemoryIO {
         }
 
         public final void finalizeReferent() {
-            pm.freePages(page, pageCount);
+            recycle(pm, page, pageCount);
             referenceSet.remove(this);
         }
     }
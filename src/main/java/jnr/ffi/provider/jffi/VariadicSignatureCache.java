@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of prepared call signatures for variadic functions, keyed on the shape of the
+ * variadic arguments (the runtime class of each argument, and any annotation classes preceding it).
+ *
+ * The maximum number of shapes cached per variadic method can be set with the
+ * {@code jnr.ffi.variadic.cache.size} system property. A size of zero disables caching.
+ */
+public final class VariadicSignatureCache<V> {
+    static final int DEFAULT_SIZE = 32;
+    static final int SIZE = getCacheSize();
+
+    // Every variadic call counts itself, so the counters are striped rather than contended atomics
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private final ConcurrentMap<Shape, V> signatures = new ConcurrentHashMap<Shape, V>();
+    private final int maxSize;
+
+    VariadicSignatureCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the number of variadic calls that reused a previously prepared signature.
+     *
+     * @return the total number of cache hits across all variadic methods.
+     */
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of variadic calls that had to prepare a new signature.
+     *
+     * @return the total number of cache misses across all variadic methods.
+     */
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    static Shape shapeOf(Object[] varargs) {
+        Class[] classes = new Class[varargs.length];
+        for (int i = 0; i < varargs.length; i++) {
+            Object arg = varargs[i];
+            if (isAnnotationClass(arg)) {
+                classes[i] = (Class) arg;
+            } else {
+                classes[i] = arg != null ? arg.getClass() : null;
+            }
+        }
+
+        return new Shape(classes);
+    }
+
+    static boolean isAnnotationClass(Object arg) {
+        return arg instanceof Class && Annotation.class.isAssignableFrom((Class) arg);
+    }
+
+    V get(Shape shape) {
+        V signature = signatures.get(shape);
+        (signature != null ? hits : misses).increment();
+        return signature;
+    }
+
+    void put(Shape shape, V signature) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        // Evict an arbitrary shape when full; callers with more distinct shapes than the cache
+        // can hold just fall back to preparing a signature per call.
+        if (signatures.size() >= maxSize) {
+            Iterator<Shape> it = signatures.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        signatures.put(shape, signature);
+    }
+
+    int size() {
+        return signatures.size();
+    }
+
+    private static int getCacheSize() {
+        try {
+            return Integer.getInteger("jnr.ffi.variadic.cache.size", DEFAULT_SIZE);
+        } catch (SecurityException se) {
+            return DEFAULT_SIZE;
+        }
+    }
+
+    static final class Shape {
+        private final Class[] classes;
+        private final int hashCode;
+
+        Shape(Class[] classes) {
+            this.classes = classes;
+            this.hashCode = Arrays.hashCode(classes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape && Arrays.equals(classes, ((Shape) o).classes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
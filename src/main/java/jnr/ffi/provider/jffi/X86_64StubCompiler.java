@@ -20,6 +20,7 @@ package jnr.ffi.provider.jffi;
 
 import com.kenai.jffi.Function;
 import jnr.ffi.CallingConvention;
+import jnr.ffi.NativeType;
 import jnr.ffi.provider.ParameterType;
 import jnr.ffi.provider.ResultType;
 import jnr.x86asm.Assembler;
@@ -67,9 +68,6 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
         }
 
 
-        int fCount = 0;
-        int iCount = 0;
-
         for (ParameterType t : parameterTypes) {
             switch (t.getNativeType()) {
                 case SCHAR:
@@ -83,12 +81,8 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
                 case SLONGLONG:
                 case ULONGLONG:
                 case ADDRESS:
-                    ++iCount;
-                    break;
-
                 case FLOAT:
                 case DOUBLE:
-                    ++fCount;
                     break;
 
                 default:
@@ -97,8 +91,8 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
             }
         }
 
-        // We can only safely compile methods with up to 6 integer and 8 floating point parameters
-        return iCount <= 6 && fCount <= 8;
+        // Integer args beyond the 6th and floating point args beyond the 8th are passed on the stack
+        return true;
     }
 
 
@@ -114,10 +108,9 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
                        Class resultClass, Class[] parameterClasses, CallingConvention convention, boolean saveErrno) {
 
         Assembler a = new Assembler(X86_64);
-        int iCount = iCount(parameterTypes);
-        int fCount = fCount(parameterTypes);
+        int stackArgCount = stackArgCount(parameterTypes);
 
-        boolean canJumpToTarget = !saveErrno & iCount <= 6 & fCount <= 8;
+        boolean canJumpToTarget = !saveErrno & stackArgCount == 0;
         switch (resultType.getNativeType()) {
             case SINT:
             case UINT:
@@ -145,103 +138,57 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
                 break;
         }
 
+        // Need to align the stack to 16 bytes for function call.
+        // It already has 8 bytes pushed (the return address), so the frame holds the outgoing
+        // stack arguments followed by a slot to save the return value, padded to keep it aligned.
+        int stackArgSize = stackArgCount * 8;
+        int space = canJumpToTarget ? 0 : stackArgSize + (stackArgSize % 16 == 0 ? 8 : 16);
+        if (space != 0) {
+            a.sub(rsp, imm(space));
+        }
+
         // JNI functions all look like:
         // foo(JNIEnv* env, jobject self, arg...)
         // on AMD64, those sit in %rdi, %rsi, %rdx, %rcx, %r8 and %r9
         // So we need to shuffle all the integer args up to over-write the
-        // env and self arguments
+        // env and self arguments.
         //
-        for (int i = 0; i < Math.min(iCount, 4); i++) {
-            switch (parameterTypes[i].getNativeType()) {
-                case SCHAR:
-                    a.movsx(dstRegisters64[i], srcRegisters8[i]);
-                    break;
-
-                case UCHAR:
-                    a.movzx(dstRegisters64[i], srcRegisters8[i]);
-                    break;
-
-                case SSHORT:
-                    a.movsx(dstRegisters64[i], srcRegisters16[i]);
-                    break;
-
-                case USHORT:
-                    a.movzx(dstRegisters64[i], srcRegisters16[i]);
-                    break;
-
-                case SINT:
-                    a.movsxd(dstRegisters64[i], srcRegisters32[i]);
-                    break;
-
-                case UINT:
-                    // mov with a 32bit dst reg zero extends to 64bit
-                    a.mov(dstRegisters32[i], srcRegisters32[i]);
-                    break;
-
-                default:
-                    a.mov(dstRegisters64[i], srcRegisters64[i]);
-                    break;
-            }
-        }
-
-        if (iCount > 6) {
-            throw new IllegalArgumentException("integer argument count > 6");
-        }
-
-        // For args 5 & 6 of the function, they would have been pushed on the stack
-        for (int i = 4; i < iCount; i++) {
-            int disp = 8 + ((4 - i) * 8);
-            switch (parameterTypes[i].getNativeType()) {
-                case SCHAR:
-                    a.movsx(dstRegisters64[i], byte_ptr(rsp, disp));
-                    break;
-
-                case UCHAR:
-                    a.movzx(dstRegisters64[i], byte_ptr(rsp, disp));
-                    break;
-
-                case SSHORT:
-                    a.movsx(dstRegisters64[i], word_ptr(rsp, disp));
-                    break;
-
-                case USHORT:
-                    a.movzx(dstRegisters64[i], word_ptr(rsp, disp));
-                    break;
-
-                case SINT:
-                    a.movsxd(dstRegisters64[i], dword_ptr(rsp, disp));
-                    break;
-
-                case UINT:
-                    // mov with a 32bit dst reg zero extends to 64bit
-                    a.mov(dstRegisters32[i], dword_ptr(rsp, disp));
-                    break;
-
-                default:
-                    a.mov(dstRegisters64[i], qword_ptr(rsp, disp));
-                    break;
+        // Integer args after the first 4, and floating point args after the first 8, were
+        // passed on the stack (in parameter order), just above the return address.  The native
+        // function takes 6 integer args in registers, so integer args 5 & 6 move from the stack
+        // into %r8 and %r9, and any args beyond that are copied to the outgoing stack area.
+        //
+        int iCount = 0, fCount = 0, srcStackIndex = 0, dstStackIndex = 0;
+        for (ParameterType parameterType : parameterTypes) {
+            NativeType nativeType = parameterType.getNativeType();
+            if (nativeType == NativeType.FLOAT || nativeType == NativeType.DOUBLE) {
+                // the first 8 args are already in xmm0..xmm7
+                if (fCount++ >= 8) {
+                    a.mov(rax, qword_ptr(rsp, space + 8 + (srcStackIndex++ * 8)));
+                    a.mov(qword_ptr(rsp, dstStackIndex++ * 8), rax);
+                }
+
+            } else {
+                int i = iCount++;
+                if (i < 4) {
+                    moveIntegerRegister(a, nativeType, i);
+
+                } else if (i < 6) {
+                    loadInteger(a, nativeType, dstRegisters64[i], dstRegisters32[i], space + 8 + (srcStackIndex++ * 8));
+
+                } else {
+                    loadInteger(a, nativeType, rax, eax, space + 8 + (srcStackIndex++ * 8));
+                    a.mov(qword_ptr(rsp, dstStackIndex++ * 8), rax);
+                }
             }
         }
 
-        // All the integer registers are loaded; there nothing to do for the floating
-        // registers, as the first 8 args are already in xmm0..xmm7, so just sanity check
-        if (fCount > 8) {
-            throw new IllegalArgumentException("float argument count > 8");
-        }
-
         if (canJumpToTarget) {
             a.jmp(imm(function.getFunctionAddress()));
             stubs.add(new Stub(name, sig(resultClass, parameterClasses), a));
             return;
         }
 
-        // Need to align the stack to 16 bytes for function call.
-        // It already has 8 bytes pushed (the return address), so making space
-        // to save the return value from the function neatly aligns it to 16 bytes
-        int space = resultClass == float.class || resultClass == double.class
-                    ? 24 : 8;
-        a.sub(rsp, imm(space));
-
         // Clear %rax, since it is used by varargs functions to determine the number of float registers to be saved
         a.mov(rax, imm(0));
 
@@ -350,6 +297,80 @@ final class X86_64StubCompiler extends AbstractX86StubCompiler {
         stubs.add(new Stub(name, sig(resultClass, parameterClasses), a));
     }
 
+    private static void moveIntegerRegister(Assembler a, NativeType nativeType, int i) {
+        switch (nativeType) {
+            case SCHAR:
+                a.movsx(dstRegisters64[i], srcRegisters8[i]);
+                break;
+
+            case UCHAR:
+                a.movzx(dstRegisters64[i], srcRegisters8[i]);
+                break;
+
+            case SSHORT:
+                a.movsx(dstRegisters64[i], srcRegisters16[i]);
+                break;
+
+            case USHORT:
+                a.movzx(dstRegisters64[i], srcRegisters16[i]);
+                break;
+
+            case SINT:
+                a.movsxd(dstRegisters64[i], srcRegisters32[i]);
+                break;
+
+            case UINT:
+                // mov with a 32bit dst reg zero extends to 64bit
+                a.mov(dstRegisters32[i], srcRegisters32[i]);
+                break;
+
+            default:
+                a.mov(dstRegisters64[i], srcRegisters64[i]);
+                break;
+        }
+    }
+
+    private static void loadInteger(Assembler a, NativeType nativeType, Register dst64, Register dst32, int disp) {
+        switch (nativeType) {
+            case SCHAR:
+                a.movsx(dst64, byte_ptr(rsp, disp));
+                break;
+
+            case UCHAR:
+                a.movzx(dst64, byte_ptr(rsp, disp));
+                break;
+
+            case SSHORT:
+                a.movsx(dst64, word_ptr(rsp, disp));
+                break;
+
+            case USHORT:
+                a.movzx(dst64, word_ptr(rsp, disp));
+                break;
+
+            case SINT:
+                a.movsxd(dst64, dword_ptr(rsp, disp));
+                break;
+
+            case UINT:
+                // mov with a 32bit dst reg zero extends to 64bit
+                a.mov(dst32, dword_ptr(rsp, disp));
+                break;
+
+            default:
+                a.mov(dst64, qword_ptr(rsp, disp));
+                break;
+        }
+    }
+
+    /**
+     * Counts the args the native function takes on the stack; any integer args
+     * after the first 6, and any floating point args after the first 8.
+     */
+    static int stackArgCount(ParameterType[] parameterTypes) {
+        return Math.max(0, iCount(parameterTypes) - 6) + Math.max(0, fCount(parameterTypes) - 8);
+    }
+
     static int fCount(ParameterType[] parameterTypes) {
         int fCount = 0;
 
@@ -20,7 +20,11 @@ package jnr.ffi;
 
 import jnr.ffi.annotations.Delegate;
 import jnr.ffi.annotations.LongLong;
+import jnr.ffi.types.intptr_t;
 import jnr.ffi.types.u_int32_t;
+import jnr.ffi.provider.ClosureManager;
+import jnr.ffi.provider.ClosureOccupancy;
+import jnr.ffi.provider.PinnedClosure;
 import jnr.ffi.util.EnumMapper;
 
 import org.junit.jupiter.api.AfterAll;
@@ -29,8 +33,22 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class DelegateTest {
 
@@ -90,6 +108,7 @@ public class DelegateTest {
             @Delegate public int call();
         }
         int testClosureVrI(CallableVrI closure);
+        int testClosureVrI(Pointer closure);
         public static interface CallableVrL {
             @Delegate public @LongLong long call();
         }
@@ -172,6 +191,24 @@ public class DelegateTest {
         Pointer ret_pointer(ReusableCallable callable);
         public CallableVrV ret_pointer(CallableVrV callable);
         public CallableIrV ret_pointer(CallableIrV callable);
+
+        public interface CallableIIrI {
+            @Delegate public int call(int a1, int a2);
+        }
+        public interface CallableLrL {
+            @Delegate public @LongLong long call(@LongLong long a1);
+        }
+        public interface CallablePrV {
+            @Delegate public void call(Pointer a1);
+        }
+        public interface CallableAddressrV {
+            @Delegate public void call(@intptr_t long a1);
+        }
+        int benchClosureIIrI(CallableIIrI closure, int count);
+        int benchClosureIIrI(Pointer closure, int count);
+        @LongLong long benchClosureLrL(CallableLrL closure, int count);
+        void benchClosurePrV(CallablePrV closure, Pointer ptr, int count);
+        void benchClosurePrV(CallableAddressrV closure, Pointer ptr, int count);
     }
     @Test
     public void closureNullWithValue() {
@@ -250,6 +287,362 @@ public class DelegateTest {
         assertTrue(called[0], "Callable not called");
         assertEquals(MAGIC, retVal, "Incorrect return value from closure");
     }
+    @Test
+    public void closuresFromManyThreads() throws InterruptedException {
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int base = t << 16;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        // Native code does not keep closures alive, so hold them until after the call
+                        List<TestLib.CallableVrI> closures = new ArrayList<TestLib.CallableVrI>();
+                        for (int i = 0; i < 2000; i++) {
+                            final int value = base + i;
+                            TestLib.CallableVrI closure = new TestLib.CallableVrI() {
+                                public int call() {
+                                    return value;
+                                }
+                            };
+                            closures.add(closure);
+                            assertEquals(value, lib.testClosureVrI(closure));
+                            if (i % 500 == 0) {
+                                closures.clear();
+                                System.gc();
+                            }
+                        }
+                    } catch (Throwable ex) {
+                        error.set(ex);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(error.get());
+    }
+
+    @Test
+    public void sameCallableSharesClosure() throws InterruptedException {
+        final TestLib.CallableVrI closure = new TestLib.CallableVrI() {
+            public int call() {
+                return 42;
+            }
+        };
+        final ClosureManager closureManager = Runtime.getRuntime(lib).getClosureManager();
+        final Pointer[] pointers = new Pointer[8];
+        Thread[] threads = new Thread[pointers.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    pointers[index] = closureManager.getClosurePointer(TestLib.CallableVrI.class, closure);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (Pointer p : pointers) {
+            assertEquals(pointers[0], p);
+        }
+        assertEquals(42, lib.testClosureVrI(closure));
+    }
+
+    @Test
+    public void closureFactoriesFromManyThreads() throws InterruptedException {
+        final Class<?>[] closureClasses = {
+                TestLib.CallableVrB.class, TestLib.CallableVrS.class, TestLib.CallableVrL.class,
+                TestLib.CallableVrF.class, TestLib.CallableVrD.class, TestLib.CallableBrV.class,
+                TestLib.CallableSrV.class, TestLib.CallableIrV.class, TestLib.CallableErV.class,
+        };
+        final Object[] closures = new Object[closureClasses.length];
+        for (int i = 0; i < closures.length; i++) {
+            closures[i] = Proxy.newProxyInstance(closureClasses[i].getClassLoader(), new Class[] { closureClasses[i] },
+                    new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return null;
+                        }
+                    });
+        }
+
+        final ClosureManager closureManager = Runtime.getRuntime(lib).getClosureManager();
+        final Pointer[][] pointers = new Pointer[8][closureClasses.length];
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[pointers.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread(new Runnable() {
+                @SuppressWarnings("unchecked")
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < closureClasses.length; i++) {
+                            int index = (i + thread) % closureClasses.length;
+                            pointers[thread][index] = closureManager.getClosurePointer(
+                                    (Class<Object>) closureClasses[index], closures[index]);
+                        }
+                    } catch (Throwable ex) {
+                        error.set(ex);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertNull(error.get());
+        for (Pointer[] p : pointers) {
+            assertArrayEquals(pointers[0], p);
+        }
+    }
+
+    public static interface ThreadBoundCallable {
+        @Delegate public int call();
+    }
+
+    @Test
+    public void shortLivedThreadsDoNotKeepClosures() throws InterruptedException {
+        final ClosureManager closureManager = Runtime.getRuntime(lib).getClosureManager();
+        final List<ThreadBoundCallable> closures = new CopyOnWriteArrayList<ThreadBoundCallable>();
+        for (int i = 0; i < 8; i++) {
+            Thread t = new Thread() {
+                public void run() {
+                    ThreadBoundCallable closure = new ThreadBoundCallable() {
+                        public int call() {
+                            return 0;
+                        }
+                    };
+                    closures.add(closure);
+                    closureManager.getClosurePointer(ThreadBoundCallable.class, closure);
+                }
+            };
+            t.start();
+            t.join();
+        }
+
+        // Each thread allocated only the closure it bound, and left nothing behind for itself
+        ClosureOccupancy occupancy = closureManager.getOccupancy(ThreadBoundCallable.class);
+        assertEquals(8, occupancy.getAllocated());
+        assertEquals(8, occupancy.getInUse());
+        assertEquals(8, closures.size());
+    }
+
+    public static interface PreallocatedCallable {
+        @Delegate public int call();
+    }
+
+    @Test
+    public void preallocatedClosures() {
+        ClosureManager closureManager = Runtime.getRuntime(lib).getClosureManager();
+        closureManager.preallocate(PreallocatedCallable.class, 16);
+        ClosureOccupancy occupancy = closureManager.getOccupancy(PreallocatedCallable.class);
+        assertEquals(16, occupancy.getAllocated());
+        assertEquals(0, occupancy.getInUse());
+        assertEquals(16, occupancy.getAvailable());
+
+        List<PreallocatedCallable> closures = new ArrayList<PreallocatedCallable>();
+        for (int i = 0; i < 10; i++) {
+            PreallocatedCallable closure = new PreallocatedCallable() {
+                public int call() {
+                    return 0;
+                }
+            };
+            closures.add(closure);
+            closureManager.getClosurePointer(PreallocatedCallable.class, closure);
+        }
+
+        occupancy = closureManager.getOccupancy(PreallocatedCallable.class);
+        assertEquals(16, occupancy.getAllocated());
+        assertEquals(10, occupancy.getInUse());
+        assertEquals(6, occupancy.getAvailable());
+        assertEquals(10, closures.size());
+    }
+
+    public static interface SharedPoolCallable {
+        @Delegate public int call();
+    }
+
+    @Test
+    public void preallocatedClosuresFromManyThreads() throws InterruptedException {
+        final ClosureManager closureManager = Runtime.getRuntime(lib).getClosureManager();
+        closureManager.preallocate(SharedPoolCallable.class, 16);
+
+        // Every thread can use the pool, so binding exactly as many callables as were preallocated allocates none
+        final List<SharedPoolCallable> closures = new CopyOnWriteArrayList<SharedPoolCallable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 4; j++) {
+                        SharedPoolCallable closure = new SharedPoolCallable() {
+                            public int call() {
+                                return 0;
+                            }
+                        };
+                        closures.add(closure);
+                        closureManager.getClosurePointer(SharedPoolCallable.class, closure);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        ClosureOccupancy occupancy = closureManager.getOccupancy(SharedPoolCallable.class);
+        assertEquals(16, closures.size());
+        assertEquals(16, occupancy.getAllocated());
+        assertEquals(16, occupancy.getInUse());
+        assertEquals(0, occupancy.getAvailable());
+    }
+
+    @Test
+    public void pinnedClosure() throws InterruptedException {
+        ClosureManager closureManager = Runtime.getRuntime(lib).getClosureManager();
+        final int[] calls = { 0 };
+        PinnedClosure<TestLib.CallableVrI> closure = closureManager.pin(TestLib.CallableVrI.class, new TestLib.CallableVrI() {
+            public int call() {
+                return ++calls[0];
+            }
+        });
+        try {
+            // The closure is only reachable through the pin, which must keep it alive
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertEquals(1, lib.testClosureVrI(closure.getPointer()));
+            assertEquals(2, lib.testClosureVrI(closure.getCallable()));
+            assertEquals(closure.getPointer(),
+                    closureManager.getClosurePointer(TestLib.CallableVrI.class, closure.getCallable()));
+        } finally {
+            closure.close();
+            closure.close();
+        }
+        assertEquals(3, lib.testClosureVrI(closure.getCallable()));
+    }
+
+    // Enough to run the native upcall loops; bench.UpcallBenchmark times them
+    private static final int UPCALLS = 1000;
+
+    @Test
+    public void upcallsIIrI() {
+        TestLib.CallableIIrI closure = new TestLib.CallableIIrI() {
+            public int call(int a1, int a2) {
+                return a1 + a2;
+            }
+        };
+        int expected = 0;
+        for (int i = 0; i < UPCALLS; i++) {
+            expected += i;
+        }
+
+        assertEquals(expected, lib.benchClosureIIrI(closure, UPCALLS));
+        try (PinnedClosure<TestLib.CallableIIrI> pinned = Runtime.getRuntime(lib).getClosureManager().pin(TestLib.CallableIIrI.class, closure)) {
+            assertEquals(expected, lib.benchClosureIIrI(pinned.getPointer(), UPCALLS));
+        }
+    }
+
+    @Test
+    public void upcallsLrL() {
+        assertEquals(3L * UPCALLS, lib.benchClosureLrL(new TestLib.CallableLrL() {
+            public long call(long a1) {
+                return a1 + 3;
+            }
+        }, UPCALLS));
+    }
+
+    @Test
+    public void upcallsPointerAndAddress() {
+        final Pointer ptr = Memory.allocateDirect(Runtime.getRuntime(lib), 8);
+        final int[] matched = { 0, 0 };
+        lib.benchClosurePrV(new TestLib.CallablePrV() {
+            public void call(Pointer a1) {
+                if (a1.address() == ptr.address()) matched[0]++;
+            }
+        }, ptr, UPCALLS);
+        lib.benchClosurePrV(new TestLib.CallableAddressrV() {
+            public void call(long a1) {
+                if (a1 == ptr.address()) matched[1]++;
+            }
+        }, ptr, UPCALLS);
+        assertEquals(UPCALLS, matched[0]);
+        assertEquals(UPCALLS, matched[1]);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** The fewest bytes allocated by any of 200 runs of {@code upcalls}, i.e. once they have been compiled */
+    private static long allocatedBytes(IntConsumer upcalls, int count) {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 200; i++) {
+            long before = allocatedBytes();
+            upcalls.accept(count);
+            least = Math.min(least, allocatedBytes() - before);
+        }
+        return least;
+    }
+
+    /** The bytes allocated per upcall, excluding what the downcall into the native loop allocates */
+    private static double allocatedPerUpcall(IntConsumer upcalls) {
+        return (double) (allocatedBytes(upcalls, 2 * UPCALLS) - allocatedBytes(upcalls, UPCALLS)) / UPCALLS;
+    }
+
+    @Test
+    public void longParametersDoNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).isThreadAllocatedMemoryEnabled());
+        final Pointer ptr = Memory.allocateDirect(Runtime.getRuntime(lib), 8);
+        final long[] sum = { 0 };
+        final TestLib.CallableAddressrV address = new TestLib.CallableAddressrV() {
+            public void call(long a1) {
+                sum[0] += a1;
+            }
+        };
+        final TestLib.CallableLrL increment = new TestLib.CallableLrL() {
+            public long call(long a1) {
+                return a1 + 3;
+            }
+        };
+        final List<Object> retained = new ArrayList<>();
+        final TestLib.CallableAddressrV allocating = new TestLib.CallableAddressrV() {
+            public void call(long a1) {
+                retained.add(new long[] { a1 });
+            }
+        };
+
+        // An @intptr_t long or long long parameter is passed straight to the delegate, with no Pointer or boxing
+        assertEquals(0.0, allocatedPerUpcall(count -> lib.benchClosurePrV(address, ptr, count)), 0.5);
+        assertEquals(0.0, allocatedPerUpcall(count -> assertEquals(3L * count, lib.benchClosureLrL(increment, count))), 0.5);
+        assertTrue(sum[0] != 0);
+
+        // ...while an upcall that does allocate is seen
+        assertTrue(allocatedPerUpcall(count -> {
+            retained.clear();
+            lib.benchClosurePrV(allocating, ptr, count);
+        }) >= 16);
+    }
+
     @Test
     public void closureVrL() {
         final boolean[] called = { false };
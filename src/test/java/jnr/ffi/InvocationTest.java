@@ -18,9 +18,18 @@
 
 package jnr.ffi;
 
+import jnr.ffi.annotations.Delegate;
+import jnr.ffi.mapper.ToNativeContext;
+import jnr.ffi.mapper.ToNativeConverter;
+import jnr.ffi.mapper.TypeMapper;
+import jnr.ffi.provider.jffi.TstLibraries;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class InvocationTest {
@@ -28,6 +37,41 @@ public class InvocationTest {
         int ret_int32_t(int i);
     }
 
+    public static final class Tracked {
+        final int value;
+        int postInvokes;
+
+        Tracked(int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Counts the post-invoke actions run for each {@link Tracked} argument
+     */
+    public static final class TrackedConverter implements ToNativeConverter.PostInvocation<Tracked, Integer> {
+        public Integer toNative(Tracked value, ToNativeContext context) {
+            return value.value;
+        }
+
+        public void postInvoke(Tracked value, Integer nativeValue, ToNativeContext context) {
+            value.postInvokes++;
+        }
+
+        public Class<Integer> nativeType() {
+            return Integer.class;
+        }
+    }
+
+    public static interface TrackedLib {
+        public static interface Callback {
+            @Delegate void call(int value);
+        }
+
+        int ret_int32_t(Tracked value);
+        void testClosureIrV(Callback callback, Tracked value);
+    }
+
     static TestLib testlib;
 
     @BeforeAll
@@ -41,4 +85,62 @@ public class InvocationTest {
             assertEquals(i, testlib.ret_int32_t(i));
         }
     }
+
+    private static Map<LibraryOption, Object> trackedOptions() {
+        Map<LibraryOption, Object> options = new HashMap<LibraryOption, Object>();
+        options.put(LibraryOption.TypeMapper, new TypeMapper.Builder().map(Tracked.class, new TrackedConverter()).build());
+        return options;
+    }
+
+    @Test
+    public void reflectiveCallWithoutSession() {
+        TestLib lib = TstLibraries.loadReflective(TestLib.class, Collections.<LibraryOption, Object>emptyMap());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, lib.ret_int32_t(i));
+        }
+        assertEquals(0, TstLibraries.reflectiveSessionDepth());
+    }
+
+    @Test
+    public void reflectiveSessionsRunPostInvokeOnce() {
+        TrackedLib lib = TstLibraries.loadReflective(TrackedLib.class, trackedOptions());
+        Tracked[] values = new Tracked[10];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Tracked(i);
+            assertEquals(i, lib.ret_int32_t(values[i]));
+        }
+
+        // A reused session that kept its post-invoke list would run earlier actions again
+        for (Tracked value : values) {
+            assertEquals(1, value.postInvokes);
+        }
+        assertEquals(0, TstLibraries.reflectiveSessionDepth());
+    }
+
+    @Test
+    public void reflectiveReentrantCall() {
+        final TrackedLib lib = TstLibraries.loadReflective(TrackedLib.class, trackedOptions());
+        final Tracked outer = new Tracked(3);
+        final Tracked inner = new Tracked(6);
+        final int[] seen = new int[5];
+
+        lib.testClosureIrV(new TrackedLib.Callback() {
+            public void call(int value) {
+                seen[0] = value;
+                seen[1] = TstLibraries.reflectiveSessionDepth();
+                seen[2] = lib.ret_int32_t(inner);
+                seen[3] = inner.postInvokes;
+                seen[4] = outer.postInvokes;
+            }
+        }, outer);
+
+        assertEquals(3, seen[0]);
+        assertEquals(1, seen[1], "outer call holds a session during the callback");
+        assertEquals(6, seen[2]);
+        assertEquals(1, seen[3], "nested call finishes its own session");
+        assertEquals(0, seen[4], "outer session is not finished by the nested call");
+        assertEquals(1, outer.postInvokes);
+        assertEquals(1, inner.postInvokes);
+        assertEquals(0, TstLibraries.reflectiveSessionDepth());
+    }
 }
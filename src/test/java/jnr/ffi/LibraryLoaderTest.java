@@ -27,8 +27,14 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class LibraryLoaderTest {
 
@@ -204,4 +210,48 @@ public class LibraryLoaderTest {
             LibraryLoader.loadLibrary(EmptyLib.class, options, libName); // fails because LoadNow
         });
     }
+
+    // Library interface with a function that does not exist in libtest
+    public static interface PartialLib {
+        int setLastError(int error);
+        int no_such_function_in_libtest(int error);
+    }
+
+    @Test
+    public void missingSymbolFailsConsistently() {
+        PartialLib lib = LibraryLoader.create(PartialLib.class).load("test");
+        lib.setLastError(0);
+        UnsatisfiedLinkError first = assertThrows(UnsatisfiedLinkError.class, () -> lib.no_such_function_in_libtest(0));
+        UnsatisfiedLinkError second = assertThrows(UnsatisfiedLinkError.class, () -> lib.no_such_function_in_libtest(0));
+        assertEquals(first.getMessage(), second.getMessage());
+
+        // A second load creates a new NativeLibrary with an empty symbol cache, so it looks the symbols up again
+        PartialLib again = LibraryLoader.create(PartialLib.class).load("test");
+        again.setLastError(1);
+        assertThrows(UnsatisfiedLinkError.class, () -> again.no_such_function_in_libtest(0));
+    }
+
+    @Test
+    public void concurrentLoadAndCall() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                final int value = i;
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        TestLibMath lib = LibraryLoader.create(TestLibMath.class)
+                                .map("add", "add_int32_t")
+                                .load("test");
+                        return lib.add(value, 1);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i + 1, (int) results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
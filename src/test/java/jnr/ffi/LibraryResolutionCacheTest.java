@@ -0,0 +1,92 @@
+package jnr.ffi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LibraryResolutionCacheTest {
+    private File tmpDir;
+    private File libDir;
+    private List<String> paths;
+
+    @BeforeEach
+    public void createTempDirs() throws IOException {
+        tmpDir = File.createTempFile("jnr-ffi-cache", "");
+        assertTrue(tmpDir.delete() && tmpDir.mkdir());
+        libDir = new File(tmpDir, "lib");
+        assertTrue(libDir.mkdir());
+        paths = Arrays.asList(libDir.getAbsolutePath(), new File(tmpDir, "missing").getAbsolutePath());
+    }
+
+    @AfterEach
+    public void deleteTempDirs() {
+        rmDir(tmpDir);
+    }
+
+    private static void rmDir(File dir) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                rmDir(child);
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void hitWhileDirectoriesUnchanged() {
+        LibraryResolutionCache cache = new LibraryResolutionCache(null);
+        long[] mtimes = LibraryResolutionCache.lastModified(paths);
+        String[][] names = { { "libfoo.so.1" }, null };
+        cache.put("foo", paths, mtimes, names);
+
+        assertArrayEquals(names, cache.get("foo", paths, LibraryResolutionCache.lastModified(paths)));
+        assertNull(cache.get("bar", paths, mtimes));
+        assertNull(cache.get("foo", paths.subList(0, 1), new long[] { mtimes[0] }));
+    }
+
+    @Test
+    public void missWhenDirectoryChanges() {
+        LibraryResolutionCache cache = new LibraryResolutionCache(null);
+        long[] mtimes = LibraryResolutionCache.lastModified(paths);
+        cache.put("foo", paths, mtimes, new String[][] { {}, null });
+
+        long[] changed = mtimes.clone();
+        changed[1] = 1234L;
+        assertNull(cache.get("foo", paths, changed));
+    }
+
+    @Test
+    public void persistsAcrossInstances() {
+        File file = new File(tmpDir, "cache");
+        long[] mtimes = LibraryResolutionCache.lastModified(paths);
+        String[][] names = { { "libfoo.so", "libfoo.so.2" }, null };
+        new LibraryResolutionCache(file).put("foo", paths, mtimes, names);
+        assertTrue(file.isFile());
+
+        LibraryResolutionCache reloaded = new LibraryResolutionCache(file);
+        assertEquals(1, reloaded.size());
+        assertArrayEquals(names, reloaded.get("foo", paths, mtimes));
+    }
+
+    @Test
+    public void ignoresCorruptFile() throws IOException {
+        File file = new File(tmpDir, "cache");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 0x6a, 0x6e, 0x72, 0x01, 0, 0, 0, 5, 1 });
+        }
+
+        assertEquals(0, new LibraryResolutionCache(file).size());
+    }
+}
@@ -0,0 +1,115 @@
+package jnr.ffi;
+
+import jnr.ffi.provider.MemoryArena;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryArenaTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    @Test
+    public void allocationsDoNotOverlap() {
+        try (MemoryArena arena = runtime.getMemoryManager().newArena()) {
+            List<Pointer> pointers = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                Pointer p = arena.allocate(24);
+                assertEquals(24, p.size());
+                assertEquals(0, p.address() % 8);
+                p.putLongLong(0, i);
+                p.putLongLong(16, -i);
+                pointers.add(p);
+            }
+
+            for (int i = 0; i < pointers.size(); i++) {
+                assertEquals(i, pointers.get(i).getLongLong(0));
+                assertEquals(-i, pointers.get(i).getLongLong(16));
+            }
+        }
+    }
+
+    @Test
+    public void allocationsAreClearedAndAligned() {
+        try (MemoryArena arena = runtime.getMemoryManager().newArena()) {
+            arena.allocate(3);
+            Pointer p = arena.allocate(64, 64, true);
+            assertEquals(0, p.address() % 64);
+            for (int i = 0; i < 64; i += 8) {
+                assertEquals(0L, p.getLongLong(i));
+            }
+        }
+    }
+
+    @Test
+    public void largeAllocation() {
+        try (MemoryArena arena = runtime.getMemoryManager().newArena()) {
+            Pointer small = arena.allocate(8);
+            Pointer large = arena.allocate(1 << 20);
+            large.putByte((1 << 20) - 1, (byte) 0x7f);
+            small.putLongLong(0, 42L);
+            assertEquals((byte) 0x7f, large.getByte((1 << 20) - 1));
+            assertEquals(42L, small.getLongLong(0));
+        }
+    }
+
+    @Test
+    public void closedArenaCannotAllocate() {
+        MemoryArena arena = runtime.getMemoryManager().newArena();
+        arena.allocate(8);
+        arena.close();
+        arena.close();
+        assertThrows(IllegalStateException.class, () -> arena.allocate(8));
+    }
+
+    @Test
+    public void confinedToOwnerThread() throws InterruptedException {
+        try (MemoryArena arena = runtime.getMemoryManager().newArena()) {
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread t = new Thread(() -> {
+                try {
+                    arena.allocate(8);
+                } catch (Throwable ex) {
+                    error.set(ex);
+                }
+            });
+            t.start();
+            t.join();
+            assertTrue(error.get() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void sharedArenaAcrossThreads() throws InterruptedException {
+        try (MemoryArena arena = runtime.getMemoryManager().newSharedArena()) {
+            List<Thread> threads = new ArrayList<>();
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            for (int t = 0; t < 4; t++) {
+                final long value = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        List<Pointer> pointers = new ArrayList<>();
+                        for (int i = 0; i < 1000; i++) {
+                            Pointer p = arena.allocate(16);
+                            p.putLongLong(0, value);
+                            pointers.add(p);
+                        }
+                        for (Pointer p : pointers) {
+                            assertEquals(value, p.getLongLong(0));
+                        }
+                    } catch (Throwable ex) {
+                        error.set(ex);
+                    }
+                }));
+            }
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+            assertEquals(null, error.get());
+        }
+    }
+}
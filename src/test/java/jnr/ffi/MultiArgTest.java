@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2007-2010 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.annotations.IgnoreError;
+import jnr.ffi.annotations.SaveError;
+import jnr.ffi.types.int16_t;
+import jnr.ffi.types.int8_t;
+import jnr.ffi.types.u_int16_t;
+import jnr.ffi.types.u_int32_t;
+import jnr.ffi.types.u_int8_t;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests functions taking more arguments than fit in the native argument registers
+ * This uses the native functions from MultiArgTest.c
+ */
+public class MultiArgTest {
+    public static interface TestLib {
+        long sum8_int8_t(@int8_t byte a1, @int8_t byte a2, @int8_t byte a3, @int8_t byte a4,
+                         @int8_t byte a5, @int8_t byte a6, @int8_t byte a7, @int8_t byte a8);
+        long sum8_uint8_t(@u_int8_t byte a1, @u_int8_t byte a2, @u_int8_t byte a3, @u_int8_t byte a4,
+                          @u_int8_t byte a5, @u_int8_t byte a6, @u_int8_t byte a7, @u_int8_t byte a8);
+        long sum8_int16_t(@int16_t short a1, @int16_t short a2, @int16_t short a3, @int16_t short a4,
+                          @int16_t short a5, @int16_t short a6, @int16_t short a7, @int16_t short a8);
+        long sum8_uint16_t(@u_int16_t short a1, @u_int16_t short a2, @u_int16_t short a3, @u_int16_t short a4,
+                           @u_int16_t short a5, @u_int16_t short a6, @u_int16_t short a7, @u_int16_t short a8);
+        long sum8_int32_t(int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8);
+        long sum8_uint32_t(@u_int32_t int a1, @u_int32_t int a2, @u_int32_t int a3, @u_int32_t int a4,
+                           @u_int32_t int a5, @u_int32_t int a6, @u_int32_t int a7, @u_int32_t int a8);
+        long sum8_int64_t(long a1, long a2, long a3, long a4, long a5, long a6, long a7, long a8);
+
+        long sum6_int32_t(int a1, int a2, int a3, int a4, int a5, int a6);
+        double sum_double_first(double d1, @int8_t byte i1, double d2, @int16_t short i2, int i3);
+        int sum12_int32_t(int a1, int a2, int a3, int a4, int a5, int a6,
+                          int a7, int a8, int a9, int a10, int a11, int a12);
+        double sum12_double(double a1, double a2, double a3, double a4, double a5, double a6,
+                            double a7, double a8, double a9, double a10, double a11, double a12);
+        float sum10_float(float a1, float a2, float a3, float a4, float a5,
+                          float a6, float a7, float a8, float a9, float a10);
+        long sum10_narrow(int a1, int a2, int a3, int a4, int a5, int a6,
+                          @int8_t byte a7, @u_int32_t int a8, @u_int16_t short a9, @int16_t short a10);
+        double sum_mixed(int i1, double d1, long i2, double d2, @int8_t byte i3, double d3, int i4, double d4,
+                         @int16_t short i5, double d5, int i6, double d6, long i7, double d7, int i8, double d8,
+                         double d9, @u_int8_t byte i9, double d10);
+    }
+
+    public static interface IgnoreErrorLib {
+        @IgnoreError
+        long sum6_int32_t(int a1, int a2, int a3, int a4, int a5, int a6);
+        @IgnoreError
+        int sum12_int32_t(int a1, int a2, int a3, int a4, int a5, int a6,
+                          int a7, int a8, int a9, int a10, int a11, int a12);
+        @IgnoreError
+        double sum12_double(double a1, double a2, double a3, double a4, double a5, double a6,
+                            double a7, double a8, double a9, double a10, double a11, double a12);
+        @IgnoreError
+        long sum8_int16_t(@int16_t short a1, @int16_t short a2, @int16_t short a3, @int16_t short a4,
+                          @int16_t short a5, @int16_t short a6, @int16_t short a7, @int16_t short a8);
+    }
+
+    public static interface SaveErrorLib {
+        @SaveError
+        int sum12_int32_t_errno(int a1, int a2, int a3, int a4, int a5, int a6,
+                                int a7, int a8, int a9, int a10, int a11, int a12);
+        @SaveError
+        double scale_double_errno(double d, int factor);
+    }
+
+    static TestLib testlib;
+    static IgnoreErrorLib ignoreErrorLib;
+    static SaveErrorLib saveErrorLib;
+
+    @BeforeAll
+    public static void setUpClass() throws Exception {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        ignoreErrorLib = TstUtil.loadTestLib(IgnoreErrorLib.class);
+        saveErrorLib = TstUtil.loadTestLib(SaveErrorLib.class);
+    }
+
+    private static long weighted(long... values) {
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += (i + 1) * values[i];
+        }
+        return sum;
+    }
+
+    @Test public void testSignedBytes() {
+        assertEquals(weighted(-1, 2, -3, 4, -5, 6, -7, -128),
+                testlib.sum8_int8_t((byte) -1, (byte) 2, (byte) -3, (byte) 4, (byte) -5, (byte) 6, (byte) -7, (byte) -128));
+    }
+
+    @Test public void testUnsignedBytes() {
+        assertEquals(weighted(255, 2, 253, 4, 251, 6, 249, 128),
+                testlib.sum8_uint8_t((byte) -1, (byte) 2, (byte) -3, (byte) 4, (byte) -5, (byte) 6, (byte) -7, (byte) -128));
+    }
+
+    @Test public void testSignedShorts() {
+        assertEquals(weighted(-1, 2, -3, 4, -5, 6, -7, -32768),
+                testlib.sum8_int16_t((short) -1, (short) 2, (short) -3, (short) 4, (short) -5, (short) 6, (short) -7, (short) -32768));
+        assertEquals(weighted(-1, 2, -3, 4, -5, 6, -7, -32768),
+                ignoreErrorLib.sum8_int16_t((short) -1, (short) 2, (short) -3, (short) 4, (short) -5, (short) 6, (short) -7, (short) -32768));
+    }
+
+    @Test public void testUnsignedShorts() {
+        assertEquals(weighted(65535, 2, 65533, 4, 65531, 6, 65529, 32768),
+                testlib.sum8_uint16_t((short) -1, (short) 2, (short) -3, (short) 4, (short) -5, (short) 6, (short) -7, (short) -32768));
+    }
+
+    @Test public void testSignedInts() {
+        assertEquals(weighted(-1, 2, -3, 4, -5, 6, -7, Integer.MIN_VALUE),
+                testlib.sum8_int32_t(-1, 2, -3, 4, -5, 6, -7, Integer.MIN_VALUE));
+    }
+
+    @Test public void testUnsignedInts() {
+        assertEquals(weighted(0xffffffffL, 2, 0xfffffffdL, 4, 0xfffffffbL, 6, 0xfffffff9L, 0x80000000L),
+                testlib.sum8_uint32_t(-1, 2, -3, 4, -5, 6, -7, Integer.MIN_VALUE));
+    }
+
+    @Test public void testLongs() {
+        assertEquals(weighted(1L << 40, -2, 3L << 33, -4, 5, -(6L << 35), 7, 8L << 50),
+                testlib.sum8_int64_t(1L << 40, -2, 3L << 33, -4, 5, -(6L << 35), 7, 8L << 50));
+    }
+
+    @Test public void testSixInts() {
+        assertEquals(weighted(-1, 2, -3, 4, -5, Integer.MIN_VALUE), testlib.sum6_int32_t(-1, 2, -3, 4, -5, Integer.MIN_VALUE));
+        assertEquals(weighted(-1, 2, -3, 4, -5, Integer.MIN_VALUE), ignoreErrorLib.sum6_int32_t(-1, 2, -3, 4, -5, Integer.MIN_VALUE));
+    }
+
+    @Test public void testFloatingPointBeforeIntegers() {
+        assertEquals(0.5 + 2 * -3 + 3 * 1.5 + 4 * -300 + 5 * -70000,
+                testlib.sum_double_first(0.5, (byte) -3, 1.5, (short) -300, -70000), 0.0);
+    }
+
+    @Test public void testTwelveInts() {
+        int expected = (int) weighted(1, -2, 3, -4, 5, -6, 7, -8, 9, -10, 11, -12);
+        assertEquals(expected, testlib.sum12_int32_t(1, -2, 3, -4, 5, -6, 7, -8, 9, -10, 11, -12));
+        assertEquals(expected, ignoreErrorLib.sum12_int32_t(1, -2, 3, -4, 5, -6, 7, -8, 9, -10, 11, -12));
+    }
+
+    @Test public void testTwelveDoubles() {
+        double expected = 0.5 + 2 * 1.5 + 3 * 2.5 + 4 * 3.5 + 5 * 4.5 + 6 * 5.5
+                + 7 * 6.5 + 8 * 7.5 + 9 * 8.5 + 10 * 9.5 + 11 * 10.5 + 12 * 11.5;
+        assertEquals(expected, testlib.sum12_double(0.5, 1.5, 2.5, 3.5, 4.5, 5.5, 6.5, 7.5, 8.5, 9.5, 10.5, 11.5), 0.0);
+        assertEquals(expected, ignoreErrorLib.sum12_double(0.5, 1.5, 2.5, 3.5, 4.5, 5.5, 6.5, 7.5, 8.5, 9.5, 10.5, 11.5), 0.0);
+    }
+
+    @Test public void testTenFloats() {
+        float expected = 0.5f + 2 * 1.5f + 3 * 2.5f + 4 * 3.5f + 5 * 4.5f + 6 * 5.5f + 7 * 6.5f + 8 * 7.5f + 9 * 8.5f + 10 * 9.5f;
+        assertEquals(expected, testlib.sum10_float(0.5f, 1.5f, 2.5f, 3.5f, 4.5f, 5.5f, 6.5f, 7.5f, 8.5f, 9.5f), 0.0f);
+    }
+
+    @Test public void testNarrowIntegersOnStack() {
+        long expected = weighted(1, 2, 3, 4, 5, 6, -7, 0xfffffff8L, 0xfff7, -10);
+        assertEquals(expected, testlib.sum10_narrow(1, 2, 3, 4, 5, 6, (byte) -7, -8, (short) -9, (short) -10));
+    }
+
+    @Test public void testMixed() {
+        double expected = 1 + 2 * (1L << 33) + 3 * -3 + 4 * 4 + 5 * -5 + 6 * 6 + 7 * -(7L << 34) + 8 * 8 + 9 * 200
+                + 10 * 0.25 + 20 * 0.5 + 30 * 0.75 + 40 * 1.0 + 50 * 1.25 + 60 * 1.5 + 70 * 1.75 + 80 * 2.0 + 90 * 2.25 + 100 * 2.5;
+        assertEquals(expected, testlib.sum_mixed(1, 0.25, 1L << 33, 0.5, (byte) -3, 0.75, 4, 1.0,
+                (short) -5, 1.25, 6, 1.5, -(7L << 34), 1.75, 8, 2.0, 2.25, (byte) 200, 2.5), 0.0);
+    }
+
+    @Test public void testSaveErrorWithStackArguments() {
+        int expected = (int) weighted(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+        assertEquals(expected, saveErrorLib.sum12_int32_t_errno(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12));
+        assertEquals(expected, Runtime.getRuntime(saveErrorLib).getLastError());
+    }
+
+    @Test public void testSaveErrorPreservesDoubleResult() {
+        assertEquals(3.75, saveErrorLib.scale_double_errno(1.25, 3), 0.0);
+        assertEquals(3, Runtime.getRuntime(saveErrorLib).getLastError());
+    }
+}
@@ -20,9 +20,17 @@ package jnr.ffi;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ObjectReferenceManagerTest {
@@ -60,4 +68,157 @@ public class ObjectReferenceManagerTest {
         assertSame(bar, referenceManager.get(ptr));
         assertSame(bar2, referenceManager.get(ptr2));
     }
+
+    @Test public void manyReferencesAddedAndRemoved() {
+        ObjectReferenceManager<Object> referenceManager = ObjectReferenceManager.newInstance(Runtime.getSystemRuntime());
+        List<Object> objects = new ArrayList<>();
+        List<Pointer> pointers = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Object obj = new Object();
+            objects.add(obj);
+            pointers.add(referenceManager.add(obj));
+        }
+
+        // Remove every other reference, so the survivors have to be found past the holes left behind
+        for (int i = 0; i < pointers.size(); i += 2) {
+            assertTrue(referenceManager.remove(pointers.get(i)));
+            assertFalse(referenceManager.remove(pointers.get(i)));
+        }
+
+        for (int i = 0; i < pointers.size(); i++) {
+            if (i % 2 == 0) {
+                assertNull(referenceManager.get(pointers.get(i)));
+            } else {
+                assertSame(objects.get(i), referenceManager.get(pointers.get(i)));
+            }
+        }
+    }
+
+    @Test public void referencesFromManyThreads() throws InterruptedException {
+        addAndRemoveFromManyThreads(ObjectReferenceManager.newInstance(Runtime.getSystemRuntime()));
+    }
+
+    private static void addAndRemoveFromManyThreads(final ObjectReferenceManager<Object> referenceManager)
+            throws InterruptedException {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int round = 0; round < 10; round++) {
+                        List<Object> objects = new ArrayList<>();
+                        List<Pointer> pointers = new ArrayList<>();
+                        for (int i = 0; i < 1000; i++) {
+                            Object obj = new Object();
+                            objects.add(obj);
+                            pointers.add(referenceManager.add(obj));
+                        }
+                        for (int i = 0; i < pointers.size(); i++) {
+                            assertSame(objects.get(i), referenceManager.get(pointers.get(i)));
+                            assertTrue(referenceManager.remove(pointers.get(i)));
+                        }
+                    }
+                } catch (Throwable ex) {
+                    error.set(ex);
+                }
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        assertNull(error.get());
+    }
+
+    @Test public void getWhileOthersAddAndRemove() throws InterruptedException {
+        final ObjectReferenceManager<Object> referenceManager = ObjectReferenceManager.newInstance(Runtime.getSystemRuntime());
+        final List<Object> objects = new ArrayList<>();
+        final List<Pointer> pointers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Object obj = new Object();
+            objects.add(obj);
+            pointers.add(referenceManager.add(obj));
+        }
+
+        // The writers grow the stripes and leave removed entries behind, which the readers must see past
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final AtomicBoolean done = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        for (int i = 0; i < pointers.size(); i++) {
+                            assertSame(objects.get(i), referenceManager.get(pointers.get(i)));
+                        }
+                    }
+                } catch (Throwable ex) {
+                    error.set(ex);
+                }
+            }));
+        }
+        for (Thread t : threads) t.start();
+        try {
+            for (int round = 0; round < 20; round++) {
+                List<Pointer> added = new ArrayList<>();
+                for (int i = 0; i < 5000; i++) {
+                    added.add(referenceManager.add(new Object()));
+                }
+                for (Pointer ptr : added) {
+                    assertTrue(referenceManager.remove(ptr));
+                }
+            }
+        } finally {
+            done.set(true);
+            for (Thread t : threads) t.join();
+        }
+        assertNull(error.get());
+    }
+
+    @Test public void handleTableReferences() {
+        ObjectReferenceManager<Object> referenceManager = ObjectReferenceManager.newInstance(Runtime.getSystemRuntime(),
+                ObjectReferenceManager.Strategy.HANDLE_TABLE);
+        List<Object> objects = new ArrayList<>();
+        List<Pointer> pointers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Object obj = new Object();
+            objects.add(obj);
+            Pointer ptr = referenceManager.add(obj);
+            assertNotEquals(0L, ptr.address());
+            pointers.add(ptr);
+        }
+
+        for (int i = 0; i < pointers.size(); i++) {
+            assertSame(objects.get(i), referenceManager.get(pointers.get(i)));
+        }
+    }
+
+    @Test public void staleHandleDetected() {
+        ObjectReferenceManager<String> referenceManager = ObjectReferenceManager.newInstance(Runtime.getSystemRuntime(),
+                ObjectReferenceManager.Strategy.HANDLE_TABLE);
+        Pointer ptr = referenceManager.add("foo");
+        assertTrue(referenceManager.remove(ptr));
+        assertFalse(referenceManager.remove(ptr));
+
+        // The slot is reused, but under a new generation, so the old handle does not alias the new object
+        Pointer ptr2 = referenceManager.add("bar");
+        assertNotEquals(ptr, ptr2);
+        assertSame("bar", referenceManager.get(ptr2));
+        assertThrows(IllegalArgumentException.class, () -> referenceManager.get(ptr));
+        assertFalse(referenceManager.remove(ptr));
+        assertSame("bar", referenceManager.get(ptr2));
+    }
+
+    @Test public void handlesNotIssuedRejected() {
+        Runtime runtime = Runtime.getSystemRuntime();
+        ObjectReferenceManager<String> referenceManager = ObjectReferenceManager.newInstance(runtime,
+                ObjectReferenceManager.Strategy.HANDLE_TABLE);
+        referenceManager.add("foo");
+        Pointer bogus = Pointer.wrap(runtime, 0x12345678L);
+        assertThrows(IllegalArgumentException.class, () -> referenceManager.get(bogus));
+        assertFalse(referenceManager.remove(bogus));
+    }
+
+    @Test public void handleTableFromManyThreads() throws InterruptedException {
+        addAndRemoveFromManyThreads(ObjectReferenceManager.newInstance(Runtime.getSystemRuntime(),
+                ObjectReferenceManager.Strategy.HANDLE_TABLE));
+    }
 }
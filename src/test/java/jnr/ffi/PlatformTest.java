@@ -274,6 +274,29 @@ public class PlatformTest {
         assertEquals(customSystemPath, locatedFile.getParentFile().getAbsolutePath());
     }
 
+    // Directories are indexed once, so a library added later is only seen after invalidating the index
+    @Test
+    public void testInvalidateLibraryIndex() throws Exception {
+        mkLib("libindexed.so", "1");
+        List<String> libPaths = Collections.singletonList(tmpDir.getAbsolutePath());
+        assertEquals(new File(tmpDir, "libindexed.so.1").getAbsolutePath(), LINUX.locateLibrary("indexed", libPaths));
+
+        mkLib("libindexed.so", "2");
+        assertEquals(new File(tmpDir, "libindexed.so.1").getAbsolutePath(), LINUX.locateLibrary("indexed", libPaths));
+
+        Platform.invalidateLibraryIndex();
+        assertEquals(new File(tmpDir, "libindexed.so.2").getAbsolutePath(), LINUX.locateLibrary("indexed", libPaths));
+    }
+
+    // Library names are matched literally, not as regular expressions
+    @Test
+    public void testLocateLibraryWithSpecialCharacters() throws Exception {
+        mkLib("libfoo++.so", "3");
+        mkLib("libfoooo.so", "4");
+        List<String> libPaths = Collections.singletonList(tmpDir.getAbsolutePath());
+        assertEquals(new File(tmpDir, "libfoo++.so.3").getAbsolutePath(), LINUX.locateLibrary("foo++", libPaths));
+    }
+
     @Test
     public void testGetVersion() {
         String originalVersion = System.getProperty("os.version");
@@ -227,4 +227,30 @@ public class PointerTest {
             dst.transferFrom(10, dst, 0, src.size());
         });
     }
+
+    @Test
+    public void testAccessOutOfBounds() {
+        Pointer small = runtime.getMemoryManager().allocateDirect(16);
+        Pointer large = runtime.getMemoryManager().allocateDirect(4096);
+        Pointer temporary = runtime.getMemoryManager().allocateTemporary(8, true);
+        for (Pointer p : new Pointer[] { small, large, temporary }) {
+            long size = p.size();
+            p.putLongLong(size - 8, 42L);
+            assertEquals(42L, p.getLongLong(size - 8));
+            assertThrows(IndexOutOfBoundsException.class, () -> p.getLongLong(size - 4));
+            assertThrows(IndexOutOfBoundsException.class, () -> p.putByte(size, (byte) 0));
+            assertThrows(IndexOutOfBoundsException.class, () -> p.getInt(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> p.put(size - 4, new int[2], 0, 2));
+            assertThrows(IndexOutOfBoundsException.class, () -> p.setMemory(1, size, (byte) 0));
+        }
+    }
+
+    @Test
+    public void testSliceOfDirectMemory() {
+        Pointer p = runtime.getMemoryManager().allocateDirect(64);
+        Pointer slice = p.slice(8, 16);
+        slice.putInt(12, 0xcafebabe);
+        assertEquals(0xcafebabe, p.getInt(20));
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.getInt(16));
+    }
 }
@@ -18,6 +18,8 @@
 
 package jnr.ffi;
 
+import jnr.ffi.annotations.CachedString;
+import jnr.ffi.annotations.Encoding;
 import jnr.ffi.annotations.In;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -25,8 +27,14 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.Charset;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StringTest {
@@ -41,11 +49,56 @@ public class StringTest {
         void string_concat(StringBuilder dst, CharSequence src);
         void string_concat(StringBuffer dst, CharSequence src);
         String ptr_return_array_element(@In String[] array, int index);
+        String string_identity(Pointer s);
+    }
+    @Encoding("UTF-8")
+    public static interface Utf8Lib {
+        boolean string_equals(String s1, byte[] s2);
+        String string_identity(Pointer s);
+    }
+    @Encoding("ISO-8859-1")
+    public static interface Latin1Lib {
+        boolean string_equals(String s1, byte[] s2);
+        String string_identity(Pointer s);
+    }
+    @Encoding("windows-1252")
+    public static interface Cp1252Lib {
+        boolean string_equals(String s1, byte[] s2);
+        String string_identity(Pointer s);
+    }
+    @Encoding("US-ASCII")
+    public static interface AsciiLib {
+        boolean string_equals(CharSequence s1, byte[] s2);
+    }
+    public static interface CachedLib {
+        @CachedString(2) String string_identity(Pointer s);
+    }
+    public static interface LargerCachedLib {
+        @CachedString(16) String string_identity(Pointer s);
+    }
+    public static interface SeparatelyCachedLib {
+        @CachedString(1) String string_identity(Pointer s);
+        @CachedString(1) String ptr_from_buffer(Pointer s);
+    }
+    public static interface OversizedCacheLib {
+        @CachedString(Integer.MAX_VALUE) String string_identity(Pointer s);
     }
     static TestLib testlib;
+    static Utf8Lib utf8lib;
+    static Latin1Lib latin1lib;
+    static Cp1252Lib cp1252lib;
+    static AsciiLib asciilib;
+    static CachedLib cachedlib;
+    static LargerCachedLib largercachedlib;
     @BeforeAll
     public static void setUpClass() throws Exception {
         testlib = TstUtil.loadTestLib(TestLib.class);
+        utf8lib = TstUtil.loadTestLib(Utf8Lib.class);
+        latin1lib = TstUtil.loadTestLib(Latin1Lib.class);
+        cp1252lib = TstUtil.loadTestLib(Cp1252Lib.class);
+        asciilib = TstUtil.loadTestLib(AsciiLib.class);
+        cachedlib = TstUtil.loadTestLib(CachedLib.class);
+        largercachedlib = TstUtil.loadTestLib(LargerCachedLib.class);
     }
     
     @AfterAll
@@ -111,4 +164,123 @@ public class StringTest {
         final String MAGIC = "deadbeef";
         assertEquals(MAGIC, testlib.ptr_return_array_element(new String[] { MAGIC }, 0));
     }
+
+    private static byte[] nulTerminated(String s, String charset) {
+        byte[] bytes = s.getBytes(Charset.forName(charset));
+        byte[] terminated = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, terminated, 0, bytes.length);
+        return terminated;
+    }
+
+    @Test public void singleByteEncodings() {
+        assertTrue(utf8lib.string_equals("/usr/lib/libfoo.so", nulTerminated("/usr/lib/libfoo.so", "UTF-8")));
+        assertTrue(utf8lib.string_equals("", new byte[] { 0 }));
+        assertTrue(latin1lib.string_equals("caf\u00e9", nulTerminated("caf\u00e9", "ISO-8859-1")));
+        assertTrue(asciilib.string_equals(new StringBuilder("key=value"), nulTerminated("key=value", "US-ASCII")));
+    }
+
+    @Test public void multiByteEncodings() {
+        // Chars outside the single byte range fall back to the charset encoder
+        assertTrue(utf8lib.string_equals("caf\u00e9 \u20ac \ud83d\ude00", nulTerminated("caf\u00e9 \u20ac \ud83d\ude00", "UTF-8")));
+        assertTrue(latin1lib.string_equals("\u20ac", nulTerminated("?", "ISO-8859-1")));
+        assertTrue(asciilib.string_equals("caf\u00e9", nulTerminated("caf?", "US-ASCII")));
+    }
+
+    @Test public void encodedStringResults() {
+        Runtime runtime = Runtime.getRuntime(testlib);
+        Pointer memory = Memory.allocateDirect(runtime, 64);
+        memory.put(0, nulTerminated("caf\u00e9 \u20ac", "UTF-8"), 0, nulTerminated("caf\u00e9 \u20ac", "UTF-8").length);
+        assertEquals("caf\u00e9 \u20ac", utf8lib.string_identity(memory));
+
+        memory.put(0, nulTerminated("caf\u00e9", "ISO-8859-1"), 0, 5);
+        assertEquals("caf\u00e9", latin1lib.string_identity(memory));
+        assertEquals("", latin1lib.string_identity(memory.slice(4)));
+
+        // Other single byte charsets also have a one byte terminator
+        memory.put(0, nulTerminated("\u20ac5", "windows-1252"), 0, 3);
+        assertEquals("\u20ac5", cp1252lib.string_identity(memory));
+        assertTrue(cp1252lib.string_equals("\u20ac5", nulTerminated("\u20ac5", "windows-1252")));
+    }
+
+    // One check per size of the single pass result path; bench.StringResultBenchmark times them
+    private static void stringResults(int length) {
+        Runtime runtime = Runtime.getRuntime(testlib);
+        Pointer memory = Memory.allocateDirect(runtime, length + 1);
+        StringBuilder expected = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            memory.putByte(i, (byte) ('a' + (i % 26)));
+            expected.append((char) ('a' + (i % 26)));
+        }
+        memory.putByte(length, (byte) 0);
+
+        assertEquals(expected.toString(), testlib.string_identity(memory));
+        assertEquals(expected.toString(), utf8lib.string_identity(memory));
+        assertEquals(expected.toString(), latin1lib.string_identity(memory));
+    }
+
+    @Test public void stringResults16B() {
+        stringResults(16);
+    }
+
+    @Test public void stringResults1KB() {
+        stringResults(1024);
+    }
+
+    @Test public void stringResults1MB() {
+        stringResults(1024 * 1024);
+    }
+
+    @Test public void cachedStringResults() {
+        Pointer memory = Memory.allocateDirect(Runtime.getRuntime(cachedlib), 16);
+        memory.putString(0, "foo", 4, Charset.forName("US-ASCII"));
+        memory.putString(4, "bar", 4, Charset.forName("US-ASCII"));
+        memory.putString(8, "baz", 4, Charset.forName("US-ASCII"));
+        Pointer foo = memory, bar = memory.slice(4), baz = memory.slice(8);
+
+        String s = cachedlib.string_identity(foo);
+        assertEquals("foo", s);
+        assertSame(s, cachedlib.string_identity(foo));
+        assertNull(cachedlib.string_identity(null));
+
+        // Using bar and then foo leaves bar as the least recently used string, so baz evicts it
+        String b = cachedlib.string_identity(bar);
+        assertEquals("bar", b);
+        assertSame(s, cachedlib.string_identity(foo));
+        assertEquals("baz", cachedlib.string_identity(baz));
+        assertSame(s, cachedlib.string_identity(foo));
+        String b2 = cachedlib.string_identity(bar);
+        assertEquals("bar", b2);
+        assertNotSame(b, b2);
+    }
+
+    @Test public void cachedStringEviction() {
+        Pointer memory = Memory.allocateDirect(Runtime.getRuntime(largercachedlib), 1000 * 8);
+        for (int i = 0; i < 1000; i++) {
+            memory.putString(i * 8, Integer.toString(i), 8, Charset.forName("US-ASCII"));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(Integer.toString(i), largercachedlib.string_identity(memory.slice(i * 8)));
+                assertEquals(Integer.toString(i / 2), largercachedlib.string_identity(memory.slice((i / 2) * 8)));
+            }
+        }
+    }
+
+    @Test public void cachedStringsPerMethod() {
+        SeparatelyCachedLib lib = TstUtil.loadTestLib(SeparatelyCachedLib.class);
+        Pointer memory = Memory.allocateDirect(Runtime.getRuntime(lib), 8);
+        memory.putString(0, "foo", 4, Charset.forName("US-ASCII"));
+        memory.putString(4, "bar", 4, Charset.forName("US-ASCII"));
+
+        // Each method holds one string, so neither evicts the other's
+        String foo = lib.string_identity(memory);
+        String bar = lib.ptr_from_buffer(memory.slice(4));
+        assertSame(foo, lib.string_identity(memory));
+        assertSame(bar, lib.ptr_from_buffer(memory.slice(4)));
+    }
+
+    @Test public void cachedStringCapacityIsBounded() {
+        assertThrows(IllegalArgumentException.class, () -> TstUtil.loadTestLib(OversizedCacheLib.class).string_identity(null));
+    }
 }
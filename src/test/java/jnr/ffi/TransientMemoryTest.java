@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi;
+
+import jnr.ffi.provider.jffi.TransientNativeMemory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the pooled, per-thread allocator behind {@link Memory#allocateTemporary}
+ */
+public class TransientMemoryTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    private static void fillMagazines(int count) {
+        List<Pointer> pointers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Pointer p = Memory.allocateTemporary(runtime, NativeType.SLONGLONG, false);
+            p.putLongLong(0, -1L);
+            pointers.add(p);
+        }
+    }
+
+    @Test
+    public void pagesAreHeldForTemporaries() {
+        Pointer p = Memory.allocateTemporary(runtime, NativeType.SINT);
+        p.putInt(0, 0xdeadbeef);
+        assertTrue(TransientNativeMemory.getPagesHeld() > 0);
+        assertEquals(0xdeadbeef, p.getInt(0));
+    }
+
+    @Test
+    public void recycledMemoryIsCleared() throws InterruptedException {
+        long reused = TransientNativeMemory.getPagesReused();
+        for (int i = 0; i < 20 && TransientNativeMemory.getPagesReused() == reused; i++) {
+            fillMagazines(10000);
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(TransientNativeMemory.getPagesReused() > reused);
+        assertTrue(TransientNativeMemory.getPagesPooled() <= TransientNativeMemory.getPagesHeld());
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(0L, Memory.allocateTemporary(runtime, NativeType.SLONGLONG, true).getLongLong(0));
+        }
+    }
+}
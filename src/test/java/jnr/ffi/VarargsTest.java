@@ -4,6 +4,7 @@ import jnr.ffi.annotations.Encoding;
 import jnr.ffi.annotations.Meta;
 import jnr.ffi.annotations.Variadic;
 import jnr.ffi.provider.FFIProvider;
+import jnr.ffi.provider.jffi.VariadicSignatureCache;
 import jnr.ffi.types.size_t;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -13,6 +14,7 @@ import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class VarargsTest {
     public static interface C {
@@ -20,6 +22,10 @@ public class VarargsTest {
         public int snprintf(Pointer buffer, @size_t long bufferSize, String format, @size_t int value);
         @Variadic(fixedCount = 3)
         public int snprintf(Pointer buffer, @size_t long bufferSize, String format, long value);
+        @Variadic(fixedCount = 3)
+        public int snprintf(Pointer buffer, @size_t long bufferSize, String format, double value);
+        @Variadic(fixedCount = 3)
+        public int snprintf(Pointer buffer, @size_t long bufferSize, String format, String s, int i, double d);
         public int snprintf(Pointer buffer, @size_t long bufferSize, String format, Object... varargs);
     }
 
@@ -66,6 +72,18 @@ public class VarargsTest {
         assertEquals("12345", result);
     }
 
+    @Test public void testFixedShapeDouble() {
+        Pointer ptr = Runtime.getRuntime(c).getMemoryManager().allocate(5000);
+        int size = c.snprintf(ptr, 5000, "%.2f", 3.25);
+        assertEquals("3.25", ptr.getString(0, size, Charset.defaultCharset()));
+    }
+
+    @Test public void testFixedShapeMixed() {
+        Pointer ptr = Runtime.getRuntime(c).getMemoryManager().allocate(5000);
+        int size = c.snprintf(ptr, 5000, "%s %d %.1f", "abc", 42, 1.5);
+        assertEquals("abc 42 1.5", ptr.getString(0, size, Charset.defaultCharset()));
+    }
+
     @Test public void testMetaAscii() throws UnsupportedEncodingException {
         Pointer ptr = Runtime.getRuntime(c).getMemoryManager().allocate(5000);
         int size = c.snprintf(ptr, 5000, "%s", AsciiEncoding.class, "\u7684");
@@ -84,6 +102,25 @@ public class VarargsTest {
         assertEquals(expected, result);
     }
 
+    @Test public void testRepeatedShapeReusesSignature() {
+        Pointer ptr = Runtime.getRuntime(c).getMemoryManager().allocate(5000);
+        c.snprintf(ptr, 5000, "%d %s", 1, "a");
+        long hits = VariadicSignatureCache.getHitCount();
+        long misses = VariadicSignatureCache.getMissCount();
+        for (int i = 0; i < 10; i++) {
+            int size = c.snprintf(ptr, 5000, "%d %s", i, "abc");
+            assertEquals(5, size);
+            assertEquals(i + " abc", ptr.getString(0, size, Charset.defaultCharset()));
+        }
+        assertTrue(VariadicSignatureCache.getHitCount() - hits >= 10);
+        assertEquals(misses, VariadicSignatureCache.getMissCount());
+
+        // a different shape must not reuse the cached signature
+        int size = c.snprintf(ptr, 5000, "%s %d", "abc", 7);
+        assertEquals("abc 7", ptr.getString(0, size, Charset.defaultCharset()));
+        assertTrue(VariadicSignatureCache.getMissCount() > misses);
+    }
+
     @Meta
     @Encoding(value="ASCII")
     public static @interface AsciiEncoding {
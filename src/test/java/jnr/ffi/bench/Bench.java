@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.bench;
+
+import java.util.Arrays;
+
+/**
+ * A minimal timing harness for the benchmarks in this package.
+ *
+ * The benchmarks are plain programs, kept out of the unit test suite.  Run them against the test classpath,
+ * with {@code jnr.ffi.library.path} pointing at the directory holding libtest, e.g.
+ * <pre>
+ * java -cp target/classes:target/test-classes:... -Djnr.ffi.library.path=target jnr.ffi.bench.UpcallBenchmark
+ * </pre>
+ *
+ * {@code bench.warmup} sets the warmup time in milliseconds, and {@code bench.batches} the number of timed
+ * batches of one second each.
+ */
+final class Bench {
+    private static final long WARMUP_MILLIS = Long.getLong("bench.warmup", 2000L);
+    private static final int BATCHES = Integer.getInteger("bench.batches", 5);
+
+    /** Consumes results so the benchmarked code cannot be optimized away */
+    static volatile long sink;
+
+    interface Op {
+        /**
+         * Runs the benchmarked operation.
+         *
+         * @return a value derived from the result of the operation.
+         */
+        long run();
+    }
+
+    private Bench() {}
+
+    /**
+     * Times {@code op}, printing the minimum and median time per operation.
+     *
+     * @param name the name to report.
+     * @param opsPerRun the number of operations performed by each call to {@code op}, e.g. the number of
+     *                  upcalls made by a native loop.
+     * @param op the operation to time.
+     */
+    static void run(String name, long opsPerRun, Op op) {
+        long sum = 0;
+        long end = System.nanoTime() + WARMUP_MILLIS * 1000000L;
+        while (System.nanoTime() < end) {
+            sum += op.run();
+        }
+
+        double[] nsPerOp = new double[BATCHES];
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long runs = 0;
+            long start = System.nanoTime(), now;
+            do {
+                sum += op.run();
+                runs++;
+            } while ((now = System.nanoTime()) - start < 1000000000L);
+            nsPerOp[batch] = (double) (now - start) / (runs * opsPerRun);
+        }
+        sink = sum;
+
+        Arrays.sort(nsPerOp);
+        System.out.printf("%-40s %12.1f ns/op (min) %12.1f ns/op (median)%n", name, nsPerOp[0], nsPerOp[BATCHES / 2]);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.bench;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.TstUtil;
+import jnr.ffi.annotations.Encoding;
+
+import java.nio.charset.Charset;
+
+/**
+ * Measures converting NUL terminated native strings of 16 bytes, 1 KB and 1 MB to java Strings, both as
+ * function results and through {@link Pointer#getString(long)}.
+ */
+public class StringResultBenchmark {
+    public static interface TestLib {
+        String string_identity(Pointer s);
+    }
+    @Encoding("UTF-8")
+    public static interface Utf8Lib {
+        String string_identity(Pointer s);
+    }
+    @Encoding("ISO-8859-1")
+    public static interface Latin1Lib {
+        String string_identity(Pointer s);
+    }
+
+    public static void main(String[] args) {
+        final TestLib testlib = TstUtil.loadTestLib(TestLib.class);
+        final Utf8Lib utf8lib = TstUtil.loadTestLib(Utf8Lib.class);
+        final Latin1Lib latin1lib = TstUtil.loadTestLib(Latin1Lib.class);
+
+        for (final int length : new int[] { 16, 1024, 1024 * 1024 }) {
+            final Pointer memory = Memory.allocateDirect(Runtime.getRuntime(testlib), length + 1);
+            for (int i = 0; i < length; i++) {
+                memory.putByte(i, (byte) ('a' + (i % 26)));
+            }
+            memory.putByte(length, (byte) 0);
+
+            Bench.run(length + " bytes, default charset", 1, new Bench.Op() {
+                public long run() {
+                    return testlib.string_identity(memory).length();
+                }
+            });
+            Bench.run(length + " bytes, UTF-8", 1, new Bench.Op() {
+                public long run() {
+                    return utf8lib.string_identity(memory).length();
+                }
+            });
+            Bench.run(length + " bytes, ISO-8859-1", 1, new Bench.Op() {
+                public long run() {
+                    return latin1lib.string_identity(memory).length();
+                }
+            });
+            final Charset utf8 = Charset.forName("UTF-8");
+            Bench.run(length + " bytes, Pointer.getString", 1, new Bench.Op() {
+                public long run() {
+                    return memory.getString(0, length + 1, utf8).length();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.bench;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.TstUtil;
+import jnr.ffi.annotations.Delegate;
+import jnr.ffi.annotations.LongLong;
+import jnr.ffi.provider.PinnedClosure;
+import jnr.ffi.types.intptr_t;
+
+/**
+ * Measures the cost of a single closure upcall, using the native loops in libtest/ClosureTest.c.
+ */
+public class UpcallBenchmark {
+    public static interface TestLib {
+        public interface CallableIIrI {
+            @Delegate public int call(int a1, int a2);
+        }
+        public interface CallableLrL {
+            @Delegate public @LongLong long call(@LongLong long a1);
+        }
+        public interface CallablePrV {
+            @Delegate public void call(Pointer a1);
+        }
+        public interface CallableAddressrV {
+            @Delegate public void call(@intptr_t long a1);
+        }
+        int benchClosureIIrI(CallableIIrI closure, int count);
+        int benchClosureIIrI(Pointer closure, int count);
+        @LongLong long benchClosureLrL(CallableLrL closure, int count);
+        void benchClosurePrV(CallablePrV closure, Pointer ptr, int count);
+        void benchClosurePrV(CallableAddressrV closure, Pointer ptr, int count);
+    }
+
+    private static final int UPCALLS = 100000;
+
+    public static void main(String[] args) {
+        final TestLib lib = TstUtil.loadTestLib(TestLib.class);
+        final Pointer ptr = Memory.allocateDirect(Runtime.getRuntime(lib), 8);
+        final long[] calls = { 0 };
+
+        final TestLib.CallableIIrI add = new TestLib.CallableIIrI() {
+            public int call(int a1, int a2) {
+                return a1 + a2;
+            }
+        };
+        Bench.run("int (int, int)", UPCALLS, new Bench.Op() {
+            public long run() {
+                return lib.benchClosureIIrI(add, UPCALLS);
+            }
+        });
+
+        final PinnedClosure<TestLib.CallableIIrI> pinned = Runtime.getRuntime(lib).getClosureManager().pin(TestLib.CallableIIrI.class, add);
+        try {
+            Bench.run("int (int, int) pinned", UPCALLS, new Bench.Op() {
+                public long run() {
+                    return lib.benchClosureIIrI(pinned.getPointer(), UPCALLS);
+                }
+            });
+        } finally {
+            pinned.close();
+        }
+
+        final TestLib.CallableLrL increment = new TestLib.CallableLrL() {
+            public long call(long a1) {
+                return a1 + 3;
+            }
+        };
+        Bench.run("long long (long long)", UPCALLS, new Bench.Op() {
+            public long run() {
+                return lib.benchClosureLrL(increment, UPCALLS);
+            }
+        });
+
+        final TestLib.CallablePrV pointer = new TestLib.CallablePrV() {
+            public void call(Pointer a1) {
+                calls[0] += a1.address();
+            }
+        };
+        Bench.run("void (void *) as Pointer", UPCALLS, new Bench.Op() {
+            public long run() {
+                lib.benchClosurePrV(pointer, ptr, UPCALLS);
+                return calls[0];
+            }
+        });
+
+        final TestLib.CallableAddressrV address = new TestLib.CallableAddressrV() {
+            public void call(long a1) {
+                calls[0] += a1;
+            }
+        };
+        Bench.run("void (void *) as @intptr_t long", UPCALLS, new Bench.Op() {
+            public long run() {
+                lib.benchClosurePrV(address, ptr, UPCALLS);
+                return calls[0];
+            }
+        });
+    }
+}
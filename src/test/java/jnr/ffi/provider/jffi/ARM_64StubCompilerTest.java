@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import com.kenai.jffi.Function;
+import com.kenai.jffi.Type;
+import jnr.ffi.CallingConvention;
+import jnr.ffi.NativeType;
+import jnr.ffi.Runtime;
+import jnr.ffi.provider.ParameterType;
+import jnr.ffi.provider.ResultType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks the code emitted by {@link ARM_64StubCompiler} word for word.  The stubs are only assembled,
+ * never run, so this runs on any host.
+ */
+public class ARM_64StubCompilerTest {
+    private static final long FUNCTION_ADDRESS = 0x1122334455667788L;
+
+    private static final NativeType[] PARAMETER_TYPES = {
+            NativeType.SCHAR, NativeType.UCHAR, NativeType.SSHORT, NativeType.USHORT, NativeType.SINT, NativeType.UINT,
+            NativeType.SLONG, NativeType.ULONG, NativeType.SLONGLONG, NativeType.ULONGLONG, NativeType.ADDRESS,
+            NativeType.FLOAT, NativeType.DOUBLE,
+    };
+
+    private final ARM_64StubCompiler compiler = new ARM_64StubCompiler(Runtime.getSystemRuntime());
+
+    @Test
+    public void registerArguments() {
+        List<NativeType> resultTypes = new ArrayList<NativeType>(Arrays.asList(PARAMETER_TYPES));
+        resultTypes.add(NativeType.VOID);
+        for (NativeType resultType : resultTypes) {
+            for (NativeType parameterType : PARAMETER_TYPES) {
+                for (int count = 0; count <= 2; count++) {
+                    NativeType[] parameterTypes = new NativeType[count];
+                    Arrays.fill(parameterTypes, parameterType);
+                    checkStub(resultType, parameterTypes, false);
+                    checkStub(resultType, parameterTypes, true);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stackArguments() {
+        assumeTrue(ARM_64StubCompiler.STACK_ARGS_SUPPORTED);
+        for (NativeType resultType : new NativeType[] { NativeType.VOID, NativeType.SINT, NativeType.DOUBLE }) {
+            for (NativeType parameterType : PARAMETER_TYPES) {
+                NativeType[] parameterTypes = new NativeType[12];
+                Arrays.fill(parameterTypes, parameterType);
+                checkStub(resultType, parameterTypes, false);
+                checkStub(resultType, parameterTypes, true);
+            }
+        }
+    }
+
+    @Test
+    public void mixedStackArguments() {
+        assumeTrue(ARM_64StubCompiler.STACK_ARGS_SUPPORTED);
+        NativeType[][] signatures = {
+                // A 9th float before the 7th integer argument shifts the integer stack slots
+                { NativeType.DOUBLE, NativeType.DOUBLE, NativeType.DOUBLE, NativeType.DOUBLE, NativeType.DOUBLE,
+                  NativeType.DOUBLE, NativeType.DOUBLE, NativeType.DOUBLE, NativeType.FLOAT, NativeType.SINT,
+                  NativeType.SINT, NativeType.SINT, NativeType.SINT, NativeType.SINT, NativeType.SINT,
+                  NativeType.USHORT, NativeType.SCHAR, NativeType.SLONGLONG },
+                // Floating point and integer stack arguments interleaved
+                { NativeType.SINT, NativeType.SINT, NativeType.SINT, NativeType.SINT, NativeType.SINT,
+                  NativeType.SINT, NativeType.SINT, NativeType.SINT, NativeType.UCHAR, NativeType.DOUBLE,
+                  NativeType.DOUBLE, NativeType.DOUBLE, NativeType.DOUBLE, NativeType.DOUBLE, NativeType.DOUBLE,
+                  NativeType.DOUBLE, NativeType.DOUBLE, NativeType.FLOAT, NativeType.ADDRESS },
+        };
+        for (NativeType[] parameterTypes : signatures) {
+            checkStub(NativeType.SLONGLONG, parameterTypes, false);
+            checkStub(NativeType.SLONGLONG, parameterTypes, true);
+        }
+    }
+
+    @Test
+    public void knownEncoding() {
+        assumeTrue(ARM_64StubCompiler.STACK_ARGS_SUPPORTED);
+        NativeType[] parameterTypes = {
+                NativeType.UCHAR, NativeType.USHORT, NativeType.UINT, NativeType.SLONGLONG, NativeType.SINT,
+                NativeType.SINT, NativeType.SCHAR, NativeType.UINT, NativeType.SINT, NativeType.UCHAR,
+        };
+        int[] expected = {
+                0xA9BE7BFD, // stp x29, x30, [sp, #-32]!
+                0x910003FD, // mov x29, sp
+                0xD10043FF, // sub sp, sp, #16
+                0xD3401C40, // uxtb x0, w2
+                0xD3403C61, // uxth x1, w3
+                0xD3407C82, // uxtw x2, w4
+                0xAA0503E3, // mov x3, x5
+                0x93407CC4, // sxtw x4, w6
+                0x93407CE5, // sxtw x5, w7
+                0x398083A6, // ldrsb x6, [x29, #32]
+                0xB9402BA7, // ldr w7, [x29, #40]
+                0xA9432FAA, // ldp x10, x11, [x29, #48]
+                0xA9002FEA, // stp x10, x11, [sp]
+                0xD28EF109, // movz x9, #0x7788
+                0xF2AAACC9, // movk x9, #0x5566, lsl #16
+                0xF2C66889, // movk x9, #0x3344, lsl #32
+                0xF2E22449, // movk x9, #0x1122, lsl #48
+                0xD63F0120, // blr x9
+                0xD3401C00, // uxtb x0, w0
+                0x910043FF, // add sp, sp, #16
+                0xA8C27BFD, // ldp x29, x30, [sp], #32
+                0xD65F03C0, // ret
+        };
+        assertArrayEquals(expected, compile(NativeType.UCHAR, parameterTypes, false));
+    }
+
+    @Test
+    public void instructionLimit() {
+        assumeTrue(ARM_64StubCompiler.STACK_ARGS_SUPPORTED);
+        // sum12_int32_t and friends fit, with room for up to 6 copied stack arguments
+        assertTrue(canCompile(repeat(NativeType.SINT, 12)));
+        assertTrue(canCompile(repeat(NativeType.SINT, 14)));
+        assertTrue(canCompile(concat(repeat(NativeType.SINT, 14), repeat(NativeType.DOUBLE, 8))));
+        assertTrue(canCompile(concat(repeat(NativeType.SINT, 8), repeat(NativeType.DOUBLE, 14))));
+
+        assertFalse(canCompile(repeat(NativeType.SINT, 15)));
+        assertFalse(canCompile(concat(repeat(NativeType.SINT, 14), repeat(NativeType.DOUBLE, 9))));
+        assertFalse(canCompile(concat(repeat(NativeType.SINT, 8), repeat(NativeType.DOUBLE, 15))));
+
+        // The largest stubs fill the code buffer exactly
+        assertEquals(ARM_64StubCompiler.MAX_INSTRUCTIONS, compile(NativeType.SINT, repeat(NativeType.SINT, 14), true).length);
+    }
+
+    private void checkStub(NativeType resultType, NativeType[] parameterTypes, boolean saveErrno) {
+        String signature = resultType + " " + Arrays.toString(parameterTypes) + (saveErrno ? " @SaveError" : "");
+        assertTrue(canCompile(resultType, parameterTypes), signature);
+
+        int[] words = compile(resultType, parameterTypes, saveErrno);
+        assertArrayEquals(expectedStub(resultType, parameterTypes, saveErrno), words, signature);
+        assertTrue(words.length <= ARM_64StubCompiler.maxInstructionCount(parameterTypes(parameterTypes)), signature);
+    }
+
+    private boolean canCompile(NativeType... parameterTypes) {
+        return canCompile(NativeType.SINT, parameterTypes);
+    }
+
+    private boolean canCompile(NativeType resultType, NativeType[] parameterTypes) {
+        return compiler.canCompile(resultType(resultType), parameterTypes(parameterTypes), CallingConvention.DEFAULT);
+    }
+
+    private int[] compile(NativeType resultType, NativeType[] parameterTypes, boolean saveErrno) {
+        Class[] parameterClasses = new Class[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterClasses[i] = javaType(parameterTypes[i]);
+        }
+
+        Function function = new Function(FUNCTION_ADDRESS, Type.SINT);
+        compiler.compile(function, "stub", resultType(resultType), parameterTypes(parameterTypes),
+                javaType(resultType), parameterClasses, CallingConvention.DEFAULT, saveErrno);
+
+        AbstractA64StubCompiler.Stub stub = compiler.stubs_A64.get(compiler.stubs_A64.size() - 1);
+        ByteBuffer buf = ByteBuffer.allocate(stub.assembler.codeSize()).order(ByteOrder.LITTLE_ENDIAN);
+        stub.assembler.relocCode(buf, 0x1000L);
+        buf.flip();
+
+        int[] words = new int[buf.remaining() / 4];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buf.getInt();
+        }
+
+        return words;
+    }
+
+    /**
+     * Builds the expected stub from the AAPCS64 rules and the A64 encodings, independently of the assembler.
+     */
+    private static int[] expectedStub(NativeType resultType, NativeType[] parameterTypes, boolean saveErrno) {
+        List<Integer> code = new ArrayList<Integer>();
+        int iCount = 0, fCount = 0;
+        for (NativeType t : parameterTypes) {
+            if (isFloat(t)) fCount++; else iCount++;
+        }
+
+        boolean jump = !saveErrno && iCount <= 6 && fCount <= 8
+                && (resultType == NativeType.VOID || resultType == NativeType.SINT || resultType == NativeType.UINT
+                    || resultType == NativeType.SLONGLONG || resultType == NativeType.ULONGLONG
+                    || resultType == NativeType.FLOAT || resultType == NativeType.DOUBLE);
+        int stackArgs = Math.max(0, iCount - 8) + Math.max(0, fCount - 8);
+        int space = (stackArgs * 8 + 15) & ~15;
+
+        if (!jump) {
+            code.add(0xA9BE7BFD);
+            code.add(0x910003FD);
+            if (space > 0) {
+                code.add(0xD10003FF | (space << 10));
+            }
+        }
+
+        List<Integer> copies = new ArrayList<Integer>();
+        int iIndex = 0, fIndex = 0, slot = 0;
+        for (NativeType t : parameterTypes) {
+            if (isFloat(t)) {
+                if (fIndex++ >= 8) {
+                    copies.add(slot++);
+                }
+            } else if (iIndex < 6) {
+                code.add(extend(t, iIndex + 2, iIndex));
+                iIndex++;
+            } else if (iIndex < 8) {
+                code.add(load(t, iIndex, 32 + slot++ * 8));
+                iIndex++;
+            } else {
+                copies.add(slot++);
+                iIndex++;
+            }
+        }
+
+        for (int i = 0; i < copies.size(); ) {
+            int src = 32 + copies.get(i) * 8;
+            if (i + 1 < copies.size() && copies.get(i + 1) == copies.get(i) + 1) {
+                code.add(0xA9400000 | ((src / 8) << 15) | (11 << 10) | (29 << 5) | 10);
+                code.add(0xA9000000 | (i << 15) | (11 << 10) | (31 << 5) | 10);
+                i += 2;
+            } else {
+                code.add(0xF9400000 | ((src / 8) << 10) | (29 << 5) | 10);
+                code.add(0xF9000000 | (i << 10) | (31 << 5) | 10);
+                i += 1;
+            }
+        }
+
+        loadAddress(code, FUNCTION_ADDRESS);
+        if (jump) {
+            code.add(0xD61F0120);
+            return toArray(code);
+        }
+
+        code.add(0xD63F0120);
+        if (saveErrno) {
+            if (isFloat(resultType)) {
+                code.add(0xFD000BA0);
+            } else if (resultType != NativeType.VOID) {
+                code.add(0xF9000BA0);
+            }
+            loadAddress(code, StubCompiler.errnoFunctionAddress);
+            code.add(0xD63F0120);
+            if (isFloat(resultType)) {
+                code.add(0xFD400BA0);
+            } else if (resultType != NativeType.VOID) {
+                code.add(load(resultType, 0, 16));
+            }
+        } else if (resultType != NativeType.VOID && !isFloat(resultType) && !isLong(resultType)) {
+            code.add(extend(resultType, 0, 0));
+        }
+
+        if (space > 0) {
+            code.add(0x910003FF | (space << 10));
+        }
+        code.add(0xA8C27BFD);
+        code.add(0xD65F03C0);
+
+        return toArray(code);
+    }
+
+    /** sxt / uxt / mov from xn to xd */
+    private static int extend(NativeType t, int n, int d) {
+        switch (t) {
+            case SCHAR: return 0x93401C00 | (n << 5) | d;
+            case UCHAR: return 0xD3401C00 | (n << 5) | d;
+            case SSHORT: return 0x93403C00 | (n << 5) | d;
+            case USHORT: return 0xD3403C00 | (n << 5) | d;
+            case SINT: return 0x93407C00 | (n << 5) | d;
+            case UINT: return 0xD3407C00 | (n << 5) | d;
+            default: return 0xAA0003E0 | (n << 16) | d;
+        }
+    }
+
+    /** Extending load of xt from [x29, #offset] */
+    private static int load(NativeType t, int rt, int offset) {
+        switch (t) {
+            case SCHAR: return 0x39800000 | (offset << 10) | (29 << 5) | rt;
+            case UCHAR: return 0x39400000 | (offset << 10) | (29 << 5) | rt;
+            case SSHORT: return 0x79800000 | ((offset / 2) << 10) | (29 << 5) | rt;
+            case USHORT: return 0x79400000 | ((offset / 2) << 10) | (29 << 5) | rt;
+            case SINT: return 0xB9800000 | ((offset / 4) << 10) | (29 << 5) | rt;
+            case UINT: return 0xB9400000 | ((offset / 4) << 10) | (29 << 5) | rt;
+            default: return 0xF9400000 | ((offset / 8) << 10) | (29 << 5) | rt;
+        }
+    }
+
+    /** movz / movk of an absolute address into x9 */
+    private static void loadAddress(List<Integer> code, long address) {
+        code.add(0xD2800000 | ((int) (address & 0xffff) << 5) | 9);
+        for (int hw = 1; hw < 4; hw++) {
+            code.add(0xF2800000 | (hw << 21) | ((int) ((address >> (16 * hw)) & 0xffff) << 5) | 9);
+        }
+    }
+
+    private static boolean isFloat(NativeType t) {
+        return t == NativeType.FLOAT || t == NativeType.DOUBLE;
+    }
+
+    private static boolean isLong(NativeType t) {
+        return t == NativeType.SLONG || t == NativeType.ULONG || t == NativeType.SLONGLONG
+                || t == NativeType.ULONGLONG || t == NativeType.ADDRESS;
+    }
+
+    private static Class javaType(NativeType t) {
+        switch (t) {
+            case VOID: return void.class;
+            case FLOAT: return float.class;
+            case DOUBLE: return double.class;
+            default: return isLong(t) ? long.class : int.class;
+        }
+    }
+
+    private static ResultType resultType(NativeType t) {
+        return new ResultType(javaType(t), t, Collections.emptyList(), null, null);
+    }
+
+    private static ParameterType[] parameterTypes(NativeType[] types) {
+        ParameterType[] parameterTypes = new ParameterType[types.length];
+        for (int i = 0; i < types.length; i++) {
+            parameterTypes[i] = new ParameterType(javaType(types[i]), types[i], Collections.emptyList(), null, null);
+        }
+        return parameterTypes;
+    }
+
+    private static NativeType[] repeat(NativeType t, int count) {
+        NativeType[] types = new NativeType[count];
+        Arrays.fill(types, t);
+        return types;
+    }
+
+    private static NativeType[] concat(NativeType[] a, NativeType[] b) {
+        NativeType[] types = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, types, a.length, b.length);
+        return types;
+    }
+
+    private static int[] toArray(List<Integer> code) {
+        int[] words = new int[code.size()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = code.get(i);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AllocatedDirectMemoryIOTest {
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+    private static final Logger logger = Logger.getLogger(AllocatedDirectMemoryIO.class.getName());
+
+    private final List<LogRecord> records = new CopyOnWriteArrayList<LogRecord>();
+    private final Handler handler = new Handler() {
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        public void flush() {}
+
+        public void close() {}
+    };
+
+    @BeforeEach
+    public void captureLog() {
+        logger.addHandler(handler);
+        logger.setUseParentHandlers(false);
+    }
+
+    @AfterEach
+    public void releaseLog() {
+        logger.removeHandler(handler);
+        logger.setUseParentHandlers(true);
+    }
+
+    private static void collect(long collected) throws InterruptedException {
+        for (int i = 0; i < 100 && AllocatedDirectMemoryIO.getCollectedCount() <= collected; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void largeAllocationsAreReclaimed() throws InterruptedException {
+        long collected = AllocatedDirectMemoryIO.getCollectedCount();
+        // Bigger than a magazine, so each of these is malloc'ed and freed once it is collected
+        for (int i = 0; i < 4096; i++) {
+            Pointer p = Memory.allocateDirect(runtime, 1 << 16, false);
+            p.putLongLong((1 << 16) - 8, i);
+            assertEquals(i, p.getLongLong((1 << 16) - 8));
+        }
+
+        collect(collected);
+        assertTrue(AllocatedDirectMemoryIO.getCollectedCount() > collected);
+        assertTrue(AllocatedDirectMemoryIO.getOutstandingCount() < 4096);
+    }
+
+    @Test
+    public void disposeFreesImmediately() {
+        int outstanding = AllocatedDirectMemoryIO.getOutstandingCount();
+        AllocatedDirectMemoryIO memory = new AllocatedDirectMemoryIO(runtime, 1024, false, true);
+        assertEquals(outstanding + 1, AllocatedDirectMemoryIO.getOutstandingCount());
+
+        memory.dispose();
+        memory.dispose();
+        assertEquals(outstanding, AllocatedDirectMemoryIO.getOutstandingCount());
+        assertTrue(records.isEmpty());
+    }
+
+    @Test
+    public void leakTrackerReportsAllocationSite() throws InterruptedException {
+        leak();
+
+        // Memory left over from other tests may be collected first, so wait for the report itself
+        for (int i = 0; i < 1000 && records.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, records.size());
+        LogRecord record = records.get(0);
+        assertEquals(Level.WARNING, record.getLevel());
+        assertTrue(record.getMessage().contains("4321 bytes"), record.getMessage());
+
+        // The recorded stack leads back to the allocating method
+        boolean found = false;
+        for (StackTraceElement element : record.getThrown().getStackTrace()) {
+            found |= element.getMethodName().equals("leak");
+        }
+        assertTrue(found);
+    }
+
+    private static void leak() {
+        new AllocatedDirectMemoryIO(runtime, 4321, false, true).putInt(0, 1);
+    }
+}
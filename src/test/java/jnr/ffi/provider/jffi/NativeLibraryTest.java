@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.LibraryOption;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NativeLibraryTest {
+    public static interface TestLib {
+        int add_int32_t(int i1, int i2);
+        int no_such_function_in_libtest(int error);
+    }
+
+    private static final Map<LibraryOption, ?> OPTIONS = Collections.emptyMap();
+
+    @Test
+    public void secondBindingHitsSymbolCache() {
+        NativeLibrary library = TstLibraries.newTestLibrary();
+        TestLib first = TstLibraries.loadAsm(library, TestLib.class, OPTIONS);
+        assertEquals(3, first.add_int32_t(1, 2));
+
+        // Without any native libraries left to search, both the found and the missing symbol must come from the cache
+        library.setNativeLibraries(Collections.<com.kenai.jffi.Library>emptyList());
+        TestLib second = TstLibraries.loadAsm(library, TestLib.class, OPTIONS);
+        TestLib third = TstLibraries.loadReflective(library, TestLib.class, OPTIONS);
+        assertEquals(5, second.add_int32_t(2, 3));
+        assertEquals(7, third.add_int32_t(3, 4));
+        assertThrows(UnsatisfiedLinkError.class, () -> second.no_such_function_in_libtest(0));
+        assertThrows(UnsatisfiedLinkError.class, () -> third.no_such_function_in_libtest(0));
+    }
+
+    @Test
+    public void symbolAddressIsCached() {
+        NativeLibrary library = TstLibraries.newTestLibrary();
+        long address = library.findSymbolAddress("add_int32_t");
+        assertEquals(0, library.getSymbolAddress("no_such_function_in_libtest"));
+
+        library.setNativeLibraries(Collections.<com.kenai.jffi.Library>emptyList());
+        assertEquals(address, library.getSymbolAddress("add_int32_t"));
+        assertEquals(address, (long) library.resolveAll(Collections.singletonList("add_int32_t")).get("add_int32_t"));
+        assertEquals(0, library.getSymbolAddress("no_such_function_in_libtest"));
+        assertThrows(SymbolNotFoundError.class, () -> library.findSymbolAddress("no_such_function_in_libtest"));
+
+        // A symbol that was never looked up is not found without the libraries
+        assertEquals(0, library.getSymbolAddress("add_int64_t"));
+    }
+}
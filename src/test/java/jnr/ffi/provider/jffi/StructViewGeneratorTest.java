@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.Memory;
+import jnr.ffi.NativeType;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.StructView;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives both the generated and the reflective view factories, whichever {@code jnr.ffi.asm.enabled} selects.
+ */
+public class StructViewGeneratorTest {
+    public static interface RecordView {
+        int getId();
+        void setId(int id);
+        double getValue();
+        void setValue(double value);
+
+        default double scaled(double factor) {
+            return getValue() * factor;
+        }
+
+        default void next() {
+            setId(getId() + 1);
+        }
+    }
+
+    private static final Runtime runtime = Runtime.getSystemRuntime();
+
+    private static StructViewGenerator.Factory<RecordView> newFactory(boolean asm) throws NoSuchMethodException {
+        Method[] methods = {
+                RecordView.class.getMethod("getId"),
+                RecordView.class.getMethod("setId", int.class),
+                RecordView.class.getMethod("getValue"),
+                RecordView.class.getMethod("setValue", double.class),
+        };
+        long[] offsets = { 4, 4, 8, 8 };
+        NativeType[] types = { NativeType.SINT, NativeType.SINT, NativeType.DOUBLE, NativeType.DOUBLE };
+
+        return StructViewGenerator.newFactory(runtime, RecordView.class, methods, offsets, types, asm);
+    }
+
+    private static void checkViews(boolean asm) throws NoSuchMethodException {
+        StructViewGenerator.Factory<RecordView> factory = newFactory(asm);
+        Pointer memory = Memory.allocateDirect(runtime, 48);
+        RecordView view = factory.newView(memory, 16);
+
+        view.setId(41);
+        view.setValue(1.5);
+        assertEquals(41, memory.getInt(20));
+        assertEquals(1.5, memory.getDouble(24));
+        view.next();
+        assertEquals(42, view.getId());
+        assertEquals(4.5, view.scaled(3));
+
+        StructView structView = (StructView) view;
+        assertSame(memory, structView.getMemory());
+        assertEquals(16, structView.getOffset());
+        structView.useMemory(memory, 32);
+        assertEquals(0, view.getId());
+        assertThrows(IndexOutOfBoundsException.class, () -> structView.useMemory(memory, 33));
+
+        RecordView other = factory.newView(memory, 0);
+        assertTrue(view.equals(view));
+        assertFalse(view.equals(other));
+        assertEquals(view.hashCode(), view.hashCode());
+        assertNotEquals(view.toString(), other.toString());
+    }
+
+    @Test
+    public void generatedViews() throws NoSuchMethodException {
+        checkViews(true);
+    }
+
+    @Test
+    public void reflectiveViews() throws NoSuchMethodException {
+        checkViews(false);
+    }
+
+    @Test
+    public void notAnInterface() {
+        assertThrows(IllegalArgumentException.class, () -> StructViewGenerator.newFactory(runtime, Object.class,
+                new Method[0], new long[0], new NativeType[0], false));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.provider.jffi;
+
+import jnr.ffi.LibraryOption;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the test library through a specific library loader, bypassing the {@code jnr.ffi.asm.enabled} switch.
+ */
+public final class TstLibraries {
+    private TstLibraries() {}
+
+    public static NativeLibrary newTestLibrary() {
+        List<String> searchPaths = new ArrayList<String>();
+        String path = System.getProperty("jnr.ffi.library.path");
+        if (path != null) {
+            Collections.addAll(searchPaths, path.split(File.pathSeparator));
+        }
+
+        return new NativeLibrary(Collections.singletonList("test"), searchPaths, Collections.<LibraryOption, Object>emptyMap());
+    }
+
+    public static <T> T loadReflective(Class<T> interfaceClass, Map<LibraryOption, ?> options) {
+        return loadReflective(newTestLibrary(), interfaceClass, options);
+    }
+
+    public static <T> T loadReflective(NativeLibrary library, Class<T> interfaceClass, Map<LibraryOption, ?> options) {
+        return new ReflectionLibraryLoader().loadLibrary(library, interfaceClass, options, false);
+    }
+
+    public static <T> T loadAsm(NativeLibrary library, Class<T> interfaceClass, Map<LibraryOption, ?> options) {
+        return new AsmLibraryLoader().loadLibrary(library, interfaceClass, options, false);
+    }
+
+    /**
+     * Gets the number of invocation sessions the reflective invoker has in use on the current thread.
+     */
+    public static int reflectiveSessionDepth() {
+        return DefaultInvokerFactory.SessionPool.get().depth();
+    }
+}
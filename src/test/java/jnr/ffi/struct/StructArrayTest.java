@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2012 Wayne Meissner
+ *
+ * This file is part of the JNR project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jnr.ffi.struct;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.Struct;
+import jnr.ffi.StructArray;
+import jnr.ffi.TstUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StructArrayTest {
+    public static final class Point extends Struct {
+        public final Signed32 x = new Signed32();
+        public final Signed32 y = new Signed32();
+
+        public Point(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static final class Padded extends Struct {
+        public final Signed64 l = new Signed64();
+        public final Signed8 b = new Signed8();
+
+        public Padded(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static interface TestLib {
+        void struct_fill_points(StructArray<Point> points, int count);
+        long struct_sum_points(StructArray<Point> points, int count);
+        StructArray<Point> struct_point_offset(StructArray<Point> points, int index);
+    }
+
+    static TestLib testlib;
+    static Runtime runtime;
+
+    @BeforeAll
+    public static void setUpClass() throws Exception {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        runtime = Runtime.getRuntime(testlib);
+    }
+
+    @Test
+    public void elementsAreContiguous() {
+        StructArray<Padded> array = new StructArray<Padded>(runtime, Padded.class, 10);
+        assertEquals(16, array.elementSize());
+        for (int i = 0; i < array.length(); i++) {
+            array.get(i).l.set(i);
+            array.get(i).b.set((byte) -i);
+        }
+
+        for (int i = 0; i < array.length(); i++) {
+            assertEquals(i, array.getMemory().getLongLong(i * 16));
+            assertEquals((byte) -i, array.getMemory().getByte(i * 16 + 8));
+        }
+    }
+
+    @Test
+    public void viewIsReused() {
+        StructArray<Point> points = new StructArray<Point>(runtime, Point.class, 2);
+        assertSame(points.get(0), points.get(1));
+
+        Point first = points.newView(0);
+        Point second = points.newView(1);
+        assertNotSame(first, second);
+        first.x.set(1);
+        second.x.set(2);
+        assertEquals(1, points.get(0).x.get());
+        assertEquals(2, points.get(1).x.get());
+        assertEquals(Struct.getMemory(second).address(), points.getMemory().address() + points.elementSize());
+    }
+
+    @Test
+    public void elementMemoryIsReused() {
+        StructArray<Point> points = new StructArray<Point>(runtime, Point.class, 3);
+        Point point = points.get(1);
+        Pointer memory = Struct.getMemory(point);
+        assertSame(memory, Struct.getMemory(point));
+
+        points.get(2);
+        assertEquals(points.getMemory().address() + 2 * points.elementSize(), Struct.getMemory(point).address());
+        assertNotSame(memory, Struct.getMemory(point));
+        assertSame(points.getMemory(), Struct.getMemory(points.get(0)));
+    }
+
+    @Test
+    public void outOfBounds() {
+        StructArray<Point> points = new StructArray<Point>(runtime, Point.class, 2);
+        assertThrows(IndexOutOfBoundsException.class, () -> points.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> points.get(-1));
+        assertEquals(0, new StructArray<Point>(runtime, Point.class, 0).length());
+    }
+
+    @Test
+    public void passToNative() {
+        StructArray<Point> points = new StructArray<Point>(runtime, Point.class, 100000);
+        testlib.struct_fill_points(points, points.length());
+
+        long sum = 0;
+        for (int i = 0; i < points.length(); i++) {
+            Point p = points.get(i);
+            assertEquals(i, p.x.get());
+            assertEquals(-i, p.y.get());
+            p.x.set(p.x.get() * 2);
+            sum += i;
+        }
+        assertEquals(sum * 3, testlib.struct_sum_points(points, points.length()));
+    }
+
+    @Test
+    public void returnFromNative() {
+        StructArray<Point> points = new StructArray<Point>(runtime, Point.class, 10);
+        testlib.struct_fill_points(points, points.length());
+
+        StructArray<Point> tail = testlib.struct_point_offset(points, 4);
+        assertEquals(-1, tail.length());
+        assertEquals(4, tail.get(0).x.get());
+        assertEquals(-9, tail.get(5).y.get());
+        assertNull(testlib.struct_point_offset(null, 0));
+    }
+
+    @Test
+    public void wrapExistingMemory() {
+        Pointer memory = runtime.getMemoryManager().allocateDirect(8 * 4, true);
+        memory.putInt(8 * 3 + 4, 42);
+        StructArray<Point> points = new StructArray<Point>(Point.class, memory, 4);
+        assertEquals(42, points.get(3).y.get());
+    }
+}
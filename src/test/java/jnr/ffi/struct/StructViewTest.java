@@ -0,0 +1,253 @@
+package jnr.ffi.struct;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.StructLayout;
+import jnr.ffi.StructView;
+import jnr.ffi.TstUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StructViewTest {
+    public static final class PointLayout extends StructLayout {
+        public final Signed32 x = new Signed32();
+        public final Signed32 y = new Signed32();
+
+        public PointLayout(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static interface PointView extends StructView {
+        int getX();
+        void setX(int x);
+        int y();
+        void y(int y);
+    }
+
+    public static interface SumView {
+        int getX();
+        int getY();
+        default long sum() {
+            return (long) getX() + getY();
+        }
+    }
+
+    /** A layout class whose field offsets depend on its constructor arguments */
+    public static final class OptionalHeaderLayout extends StructLayout {
+        public final Signed64 header;
+        public final Signed32 x;
+
+        public OptionalHeaderLayout(Runtime runtime, boolean header) {
+            super(runtime);
+            this.header = header ? new Signed64() : null;
+            this.x = new Signed32();
+        }
+    }
+
+    public static interface XView {
+        int getX();
+    }
+
+    public static interface WidePointView {
+        long getX();
+        byte getY();
+    }
+
+    public static final class MixedLayout extends StructLayout {
+        public final Unsigned8 u8 = new Unsigned8();
+        public final Signed16 s16 = new Signed16();
+        public final Unsigned32 u32 = new Unsigned32();
+        public final Signed64 s64 = new Signed64();
+        public final Float f = new Float();
+        public final Double d = new Double();
+        public final Pointer p = new Pointer();
+
+        public MixedLayout(Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    public static interface MixedView {
+        int getU8();
+        void setU8(int value);
+        short getS16();
+        void setS16(short value);
+        long getU32();
+        void setU32(long value);
+        int getS64();
+        void setS64(long value);
+        double getF();
+        void setF(double value);
+        float getD();
+        void setD(float value);
+        long getP();
+        void setP(long value);
+        boolean isU8();
+        void setU8(boolean value);
+    }
+
+    public static interface UnknownFieldView {
+        int getZ();
+    }
+
+    public static interface TestLib {
+        void struct_fill_points(Pointer points, int count);
+        long struct_sum_points(Pointer points, int count);
+    }
+
+    static TestLib testlib;
+    static Runtime runtime;
+
+    @BeforeAll
+    public static void setUpClass() throws Exception {
+        testlib = TstUtil.loadTestLib(TestLib.class);
+        runtime = Runtime.getRuntime(testlib);
+    }
+
+    @Test
+    public void walkNativeRecords() {
+        PointLayout layout = new PointLayout(runtime);
+        int count = 10000;
+        Pointer memory = Memory.allocateDirect(runtime, layout.size() * count);
+        testlib.struct_fill_points(memory, count);
+
+        PointView point = layout.newView(PointView.class, memory);
+        for (int i = 0; i < count; i++) {
+            point.useMemory(memory, (long) i * layout.size());
+            assertEquals(i, point.getX());
+            assertEquals(-i, point.y());
+            point.setX(i * 3);
+        }
+        assertSame(memory, point.getMemory());
+        assertEquals((long) (count - 1) * layout.size(), point.getOffset());
+
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += i * 3 * 2 - i;
+        }
+        assertEquals(sum, testlib.struct_sum_points(memory, count));
+    }
+
+    @Test
+    public void widenAndNarrow() {
+        PointLayout layout = new PointLayout(runtime);
+        Pointer memory = Memory.allocateDirect(runtime, layout.size());
+        layout.x.set(memory, -5);
+        layout.y.set(memory, 0x1ff);
+
+        WidePointView point = layout.newView(WidePointView.class, memory);
+        assertEquals(-5L, point.getX());
+        assertEquals((byte) 0xff, point.getY());
+        assertTrue(point instanceof StructView);
+    }
+
+    @Test
+    public void fieldTypes() {
+        MixedLayout layout = new MixedLayout(runtime);
+        Pointer memory = Memory.allocateDirect(runtime, layout.size());
+        MixedView view = layout.newView(MixedView.class, memory);
+
+        view.setU8(0xff);
+        assertEquals(0xff, view.getU8());
+        assertEquals((byte) 0xff, memory.getByte(layout.u8.offset()));
+
+        view.setS16((short) -2);
+        assertEquals(-2, view.getS16());
+        assertEquals(-2, layout.s16.get(memory));
+
+        view.setU32(0xfffffffeL);
+        assertEquals(0xfffffffeL, view.getU32());
+        assertEquals(-2, memory.getInt(layout.u32.offset()));
+
+        view.setS64(0x100000001L);
+        assertEquals(1, view.getS64());
+        assertEquals(0x100000001L, layout.s64.get(memory));
+
+        view.setF(1.5);
+        assertEquals(1.5, view.getF());
+        assertEquals(1.5f, layout.f.get(memory));
+
+        view.setD(2.25f);
+        assertEquals(2.25f, view.getD());
+        assertEquals(2.25, layout.d.get(memory));
+
+        view.setP(memory.address());
+        assertEquals(memory.address(), view.getP());
+        assertEquals(memory.address(), layout.p.get(memory).address());
+
+        view.setU8(false);
+        assertFalse(view.isU8());
+        view.setU8(true);
+        assertTrue(view.isU8());
+        assertEquals(1, memory.getByte(layout.u8.offset()));
+    }
+
+    @Test
+    public void recordMustFit() {
+        PointLayout layout = new PointLayout(runtime);
+        Pointer memory = Memory.allocateDirect(runtime, layout.size() * 2);
+        PointView point = layout.newView(PointView.class, memory);
+        point.useMemory(memory, layout.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> point.useMemory(memory, layout.size() + 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> point.useMemory(memory, -1));
+        assertThrows(IllegalArgumentException.class, () -> point.useMemory(Memory.allocate(runtime, layout.size()), 0));
+        assertEquals(layout.size(), point.getOffset());
+    }
+
+    @Test
+    public void defaultMethods() {
+        PointLayout layout = new PointLayout(runtime);
+        Pointer memory = Memory.allocateDirect(runtime, layout.size());
+        layout.x.set(memory, Integer.MAX_VALUE);
+        layout.y.set(memory, 2);
+        assertEquals(Integer.MAX_VALUE + 2L, layout.newView(SumView.class, memory).sum());
+    }
+
+    @Test
+    public void viewClassSharedByLayoutInstances() {
+        Pointer memory = Memory.allocateDirect(runtime, 16);
+        PointView first = new PointLayout(runtime).newView(PointView.class, memory);
+        PointView second = new PointLayout(runtime).newView(PointView.class, memory);
+        assertSame(first.getClass(), second.getClass());
+
+        // Instances of one layout class with different offsets get views of their own
+        memory.putInt(0, 1);
+        memory.putInt(8, 2);
+        assertEquals(1, new OptionalHeaderLayout(runtime, false).newView(XView.class, memory).getX());
+        assertEquals(2, new OptionalHeaderLayout(runtime, true).newView(XView.class, memory).getX());
+        assertEquals(1, new OptionalHeaderLayout(runtime, false).newView(XView.class, memory).getX());
+    }
+
+    public static interface HeaderView {
+        long getHeader();
+    }
+
+    @Test
+    public void bindingSharedByLayoutInstances() {
+        Pointer memory = Memory.allocateDirect(runtime, 16);
+        memory.putLongLong(0, 7);
+        OptionalHeaderLayout layout = new OptionalHeaderLayout(runtime, true);
+        HeaderView view = layout.newView(HeaderView.class, memory);
+        assertEquals(7, view.getHeader());
+        assertSame(view.getClass(), layout.newView(HeaderView.class, memory).getClass());
+
+        // The accessor is bound to the header field of the class, which this instance leaves unset
+        assertThrows(IllegalArgumentException.class,
+                () -> new OptionalHeaderLayout(runtime, false).newView(HeaderView.class, memory));
+    }
+
+    @Test
+    public void unknownField() {
+        PointLayout layout = new PointLayout(runtime);
+        Pointer memory = Memory.allocateDirect(runtime, layout.size());
+        assertThrows(IllegalArgumentException.class, () -> layout.newView(UnknownFieldView.class, memory));
+    }
+}
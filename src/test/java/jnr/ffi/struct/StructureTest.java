@@ -35,6 +35,7 @@ import jnr.ffi.types.ssize_t;
 import static jnr.ffi.TypeAlias.ssize_t;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 
 public class StructureTest {
 
@@ -93,6 +94,62 @@ public class StructureTest {
         assertEquals(D, s.d.get(), 0.0001, "Incorrect double value in struct");
 
     }
+    public static class CountedStruct extends Struct {
+        static int instances;
+        public final Signed8 b = new Signed8();
+        public final Signed32 i = new Signed32();
+        public final Signed64 i64 = new Signed64();
+        public final Signed16 s = new Signed16();
+
+        public CountedStruct(jnr.ffi.Runtime runtime) {
+            super(runtime);
+            instances++;
+        }
+    }
+
+    public static class PaddedStruct extends Struct {
+        public final Signed64 i64 = new Signed64();
+        public final Signed8 b = new Signed8();
+
+        public PaddedStruct(jnr.ffi.Runtime runtime) {
+            super(runtime, new Alignment(8));
+        }
+    }
+
+    @Test
+    public void classLayoutMatchesInstance() {
+        int instances = CountedStruct.instances;
+        assertEquals(18, Struct.size(CountedStruct.class, runtime));
+        assertEquals(8, Struct.alignment(CountedStruct.class, runtime));
+        // Only the first query measures an instance
+        assertEquals(instances + 1, CountedStruct.instances);
+        assertEquals(18, Struct.size(CountedStruct.class, runtime));
+        assertEquals(instances + 1, CountedStruct.instances);
+
+        CountedStruct s = Struct.newInstance(runtime, CountedStruct.class);
+        assertEquals(instances + 2, CountedStruct.instances);
+        assertEquals(0, s.b.offset());
+        assertEquals(4, s.i.offset());
+        assertEquals(8, s.i64.offset());
+        assertEquals(16, s.s.offset());
+        assertEquals(18, Struct.size(s));
+        assertNotSame(s, Struct.newInstance(runtime, CountedStruct.class));
+
+        // An explicit alignment pads the size to a multiple of it
+        assertEquals(16, Struct.size(PaddedStruct.class, runtime));
+        assertEquals(8, Struct.alignment(PaddedStruct.class, runtime));
+        assertEquals(8, Struct.newInstance(runtime, PaddedStruct.class).b.offset());
+    }
+
+    @Test
+    public void structRefUsesClassLayout() {
+        structWithStructRef s = new structWithStructRef(runtime);
+        struct1[] array = Struct.arrayOf(runtime, struct1.class, 3);
+        array[2].i.set(42);
+        s.mStructRef.set(array);
+        assertEquals(42, s.mStructRef.get(3)[2].i.get());
+    }
+
     private static final class ArrayTest extends Struct {
         public final Signed8[] byteArray = array(new Signed8[8]);
 